@@ -0,0 +1,191 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Advisor recommends whether a player should hit or stay. It calculates
+ * the expected value of each action over the exact cards left: +1 for a win,
+ * 0 for a tie and -1 for a loss. Hitting follows every card the player could
+ * draw, taking each drawn card out of the cards left, and then plays the best
+ * action again. Staying uses the dealer's odds for the cards left at the time
+ * of the decision.
+ *
+ * Every card left is taken to be equally likely to be drawn, as from a real
+ * shoe. The game's Shoe deals every card number left with equal chances
+ * instead, whatever its count, so the expected values are those of a real
+ * shoe and can be a little off for the game being dealt, most of all late in
+ * a shoe when some numbers have few cards left.
+ *
+ * Advice is kept in a bounded cache with the least recently used entry
+ * removed first, so asking again with the same cards is a single lookup.
+ *
+ * @author Aimee Shao
+ */
+public class Advisor {
+
+  // Indexes of the expected values
+  public static final int STAY = 0;
+  public static final int HIT = 1;
+
+  private static final int NUM_OF_VALUES = CompositionKey.NUM_OF_VALUES;
+  private static final int ACE_AS_ELEVEN = 11;
+
+  // Bits used for the count of each value drawn in the memo's key
+  private static final int DRAWN_BITS = 5;
+
+  // Size of the memo of hit values; a power of 2 well above the number of
+  // different sets of cards a player can draw without busting
+  private static final int MEMO_SIZE = 1 << 13;
+
+  private DealerOdds dealerOdds; // calculates the dealer's odds
+  private Map<CompositionKey, double[]> cache; // advice asked before
+
+  // Used while calculating
+  private int[] counts; // count of each value left
+  private double[] odds; // dealer's odds for the cards left
+  private double[] stayValues; // expected value of staying on each total
+
+  // Memo of expected values of hitting by the cards drawn so far, as an open
+  // addressing table; an entry is only valid if its query matches
+  private long[] memoDrawn; // cards drawn of each entry
+  private double[] memoValues; // expected value of hitting of each entry
+  private int[] memoQuery; // query each entry was written in
+  private int query = 0; // number of the current query
+
+  /**
+   * Constructor for the advisor.
+   * @param dealerOdds Calculates the dealer's odds
+   * @param cacheSize Maximum number of advice kept in the cache
+   */
+  Advisor(DealerOdds dealerOdds, int cacheSize) {
+    this.dealerOdds = dealerOdds;
+    cache = new LinkedHashMap<CompositionKey, double[]>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(
+          Map.Entry<CompositionKey, double[]> eldest) {
+        return size() > cacheSize;
+      }
+    };
+
+    counts = new int[NUM_OF_VALUES];
+    odds = new double[DealerOdds.NUM_OF_TOTALS];
+    stayValues = new double[Player.BUST_NUM + 1];
+    memoDrawn = new long[MEMO_SIZE];
+    memoValues = new double[MEMO_SIZE];
+    memoQuery = new int[MEMO_SIZE];
+  }
+
+  /**
+   * Calculates the expected value of staying and of hitting.
+   * @param total Player's total, not busted
+   * @param soft Whether the player has an ace counted as 11
+   * @param upCard Number 1-13 of the dealer's face up card
+   * @param deck Count of each card number 1-13 that may be drawn, not
+   *             including the player's cards or the dealer's face up card
+   * @param values Array of 2 that the expected values are written into, at
+   *               STAY and HIT
+   * @return None.
+   */
+  public synchronized void advise(int total, boolean soft, int upCard
+      , int[] deck, double[] values) {
+    int cardsLeft = CompositionKey.collapse(deck, counts);
+    int upValue = CompositionKey.valueOf(upCard);
+
+    // face up card, total and softness in the extra state of the key
+    int state = (upValue << 6 | total) << 1 | (soft ? 1 : 0);
+    CompositionKey key = new CompositionKey(state, counts);
+    double[] cached = cache.get(key);
+
+    if (cached == null) {
+      dealerOdds.getOdds(upCard, deck, odds);
+      for (int t = 0; t <= Player.BUST_NUM; t++) {
+        stayValues[t] = stayValue(t);
+      }
+
+      cached = new double[2];
+      cached[STAY] = stayValues[total];
+      // forget the memo of the last query
+      query += 1;
+      if (query == 0) { // wrapped around, so old entries could match again
+        Arrays.fill(memoQuery, -1);
+      }
+      cached[HIT] = hitValue(total, soft, cardsLeft, 0);
+
+      cache.put(key, cached);
+    }
+
+    values[STAY] = cached[STAY];
+    values[HIT] = cached[HIT];
+  }
+
+  /**
+   * Helper method that calculates the expected value of staying on a total.
+   * @param total Player's total, not busted
+   * @return Expected value of staying
+   */
+  private double stayValue(int total) {
+    double value = odds[DealerOdds.BUST]; // win if dealer busts
+
+    for (int t = 0; t < DealerOdds.BUST; t++) {
+      int dealerTotal = t + Board.DEALER_MINIMUM;
+
+      if (total > dealerTotal)
+        value += odds[t];
+      else if (total < dealerTotal)
+        value -= odds[t];
+    }
+
+    return value;
+  }
+
+  /**
+   * Helper method that calculates the expected value of hitting once and then
+   * playing the best action.
+   * @param total Player's total, not busted
+   * @param soft Whether the player has an ace counted as 11
+   * @param cardsLeft Number of cards left to draw from
+   * @param drawn Count of each value drawn so far, packed into a long
+   * @return Expected value of hitting
+   */
+  private double hitValue(int total, boolean soft, int cardsLeft, long drawn) {
+    // look for the cards drawn in the memo
+    int slot = (int) (drawn ^ drawn >>> 29) * 0x9E3779B9 >>> 19;
+    while (memoQuery[slot] == query) {
+      if (memoDrawn[slot] == drawn)
+        return memoValues[slot];
+      slot = (slot + 1) & (MEMO_SIZE - 1);
+    }
+
+    double value = 0;
+    for (int v = 0; v < NUM_OF_VALUES; v++) {
+      if (counts[v] == 0)
+        continue;
+
+      double chance = (double) counts[v] / cardsLeft;
+      int card = v + 1;
+
+      int hand = Hand.addValue(total, soft, card);
+      int newTotal = hand & Hand.SOFT_TOTAL_MASK;
+      boolean newSoft = hand >= Hand.SOFT_FLAG;
+
+      if (newTotal > Player.BUST_NUM) {
+        value -= chance; // player loses on bust
+      } else {
+        counts[v] -= 1;
+        double hit = hitValue(newTotal, newSoft, cardsLeft - 1
+            , drawn + (1L << (v * DRAWN_BITS)));
+        counts[v] += 1;
+
+        value += chance * Math.max(stayValues[newTotal], hit);
+      }
+    }
+
+    // slot may have been taken while drawing more cards, so find it again
+    while (memoQuery[slot] == query) {
+      slot = (slot + 1) & (MEMO_SIZE - 1);
+    }
+    memoQuery[slot] = query;
+    memoDrawn[slot] = drawn;
+    memoValues[slot] = value;
+    return value;
+  }
+}
@@ -0,0 +1,255 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmark measures the hot paths of the game: dealing a card at different
+ * fill levels of the shoe, adding cards to a hand with many aces, calculating
+ * a hint, and playing whole rounds, one board at a time and in a batch of
+ * tables. Each benchmark is warmed up first, then run for several iterations,
+ * and reports the time, the bytes allocated and the garbage collections per
+ * operation so regressions show up.
+ *
+ * Run it with `make bench`.
+ *
+ * @author Aimee Shao
+ */
+public class Benchmark {
+
+  // Iterations and time of each iteration
+  private static final int WARMUP_ITERATIONS = 3;
+  private static final int MEASURED_ITERATIONS = 5;
+  private static final long ITERATION_NANOS = 200_000_000L;
+
+  // Strings for the report
+  private static final String HEADER_STR = String.format(
+      "%-28s %12s %10s %12s %6s\n", "Benchmark", "ns/op", "error", "B/op"
+      , "gc");
+  private static final String RESULT_STR = "%-28s %12.2f %10.2f %12.3f %6d\n";
+
+  // Shoe used by the dealing benchmarks
+  private static final int NUM_DECKS = 8;
+  private static final int DEALS_PER_REFILL = 32;
+
+  // Tables played at once by the batch benchmark
+  private static final int BATCH_TABLES = 256;
+
+  private static long sink = 0; // keeps results from being optimized away
+
+  /**
+   * A benchmarked operation.
+   */
+  private interface Operation {
+
+    /**
+     * Runs the operation several times.
+     * @param ops Number of times to run the operation
+     * @return Any value depending on the work done
+     */
+    long run(int ops);
+  }
+
+  /**
+   * Runs every benchmark and prints the results.
+   * @param args Command line arguments, not used
+   * @return Nothing.
+   */
+  public static void main(String[] args) {
+    System.out.print(HEADER_STR);
+
+    // dealing with the shoe full, half full and almost empty
+    benchmarkDeal("dealCard.full", 1.0);
+    benchmarkDeal("dealCard.half", 0.5);
+    benchmarkDeal("dealCard.nearlyEmpty", 0.1);
+
+    // a hand of eleven aces changes an ace from 11 to 1 on almost every hit
+    Player player = new Player();
+    run("hit.manyAces", ops -> {
+      long total = 0;
+      for (int i = 0; i < ops; i++) {
+        if (i % 11 == 0)
+          player.reset();
+        player.hit(1);
+        total += player.getTotal();
+      }
+      return total;
+    });
+
+    run("hit.mixed", ops -> {
+      long total = 0;
+      for (int i = 0; i < ops; i++) {
+        if (player.getBusted())
+          player.reset();
+        player.hit(i % Shoe.NUM_OF_NUMBERS + 1);
+        total += player.getTotal();
+      }
+      return total;
+    });
+
+    benchmarkHint();
+
+    // whole rounds with one and with five players
+    for (int numPlayers : new int[] {1, 5}) {
+      Board board = new Board(numPlayers, new Rules(NUM_DECKS, 75)
+          , new NullOutput(), new CardRandom(1));
+      Policy policy = new ThresholdPolicy(17);
+      run("playRound." + numPlayers + "player", ops -> {
+        long total = 0;
+        for (int i = 0; i < ops; i++) {
+          total += board.playRound(policy).getDealerTotal();
+        }
+        return total;
+      });
+    }
+
+    // the same rounds in a batch of tables, per table and round
+    TableBatch batch = new TableBatch(BATCH_TABLES, new Rules(NUM_DECKS, 75)
+        , new ThresholdPolicy(17), new CardRandom(1));
+    int[] outcomes = new int[BATCH_TABLES];
+    run("playRound.batch", ops -> {
+      long total = 0;
+      for (int i = 0; i < ops; i += BATCH_TABLES) {
+        batch.playRound(outcomes);
+        total += outcomes[0];
+      }
+      return total;
+    });
+
+    if (sink == 42) // practically never, but the JIT cannot know that
+      System.out.println();
+  }
+
+  /**
+   * Benchmarks dealing cards with the shoe filled to about a level.
+   * @param name Name of the benchmark
+   * @param level Fraction of the shoe left when dealing starts
+   * @return Nothing.
+   */
+  private static void benchmarkDeal(String name, double level) {
+    Shoe shoe = new Shoe(NUM_DECKS, 100, new CardRandom(1));
+    int size = NUM_DECKS * Shoe.NUM_OF_NUMBERS * Shoe.NUM_OF_SUITS;
+    int start = Math.max((int) (size * level), DEALS_PER_REFILL);
+
+    shoe.refill();
+    while (shoe.getCardsLeft() > start) {
+      shoe.deal();
+    }
+
+    run(name, ops -> {
+      long total = 0;
+      for (int i = 0; i < ops; i++) {
+        // bring the shoe back to the level every few deals
+        if (i % DEALS_PER_REFILL == 0)
+          shoe.putBack(start - shoe.getCardsLeft());
+        total += shoe.deal();
+      }
+      return total;
+    });
+  }
+
+  /**
+   * Benchmarks hints, both for new cards left and for cards asked before.
+   * @return Nothing.
+   */
+  private static void benchmarkHint() {
+    Advisor advisor = new Advisor(new DealerOdds(1024), 4096);
+    int[] deck = new int[Shoe.NUM_OF_NUMBERS];
+    double[] values = new double[2];
+    SplittableRandom rand = new SplittableRandom(1);
+
+    // cards left change every time, so nothing is cached
+    run("hint.new", ops -> {
+      long total = 0;
+      for (int i = 0; i < ops; i++) {
+        for (int n = 0; n < deck.length; n++) {
+          deck[n] = Shoe.NUM_OF_SUITS * NUM_DECKS - rand.nextInt(8);
+        }
+        advisor.advise(12 + i % 5, false, i % 10 + 1, deck, values);
+        total += (long) values[Advisor.HIT];
+      }
+      return total;
+    });
+
+    // same few questions asked again
+    run("hint.cached", ops -> {
+      long total = 0;
+      for (int n = 0; n < deck.length; n++) {
+        deck[n] = Shoe.NUM_OF_SUITS * NUM_DECKS;
+      }
+      for (int i = 0; i < ops; i++) {
+        advisor.advise(12 + i % 5, false, 10, deck, values);
+        total += (long) values[Advisor.HIT];
+      }
+      return total;
+    });
+  }
+
+  /**
+   * Runs a benchmark and prints its result. The number of operations of each
+   * iteration is chosen during warm up to take about ITERATION_NANOS.
+   * @param name Name of the benchmark
+   * @param operation Operation to measure
+   * @return Nothing.
+   */
+  private static void run(String name, Operation operation) {
+    // warm up, growing the number of operations until an iteration is long
+    int ops = 1;
+    for (int w = 0; w < WARMUP_ITERATIONS; w++) {
+      long start;
+      do {
+        start = System.nanoTime();
+        sink += operation.run(ops);
+        long elapsed = System.nanoTime() - start;
+        if (elapsed < ITERATION_NANOS && ops < Integer.MAX_VALUE / 2)
+          ops *= 2;
+        else
+          break;
+      } while (w == 0);
+      sink += operation.run(ops);
+    }
+
+    double[] nanosPerOp = new double[MEASURED_ITERATIONS];
+    long bytes = 0;
+    long gcs = 0;
+
+    for (int m = 0; m < MEASURED_ITERATIONS; m++) {
+      long startGcs = gcCount();
+      long startBytes = Simulator.allocatedBytes();
+      long start = System.nanoTime();
+
+      sink += operation.run(ops);
+
+      nanosPerOp[m] = (double) (System.nanoTime() - start) / ops;
+      bytes += Simulator.allocatedBytes() - startBytes;
+      gcs += gcCount() - startGcs;
+    }
+
+    // mean and standard deviation of the iterations
+    double mean = 0;
+    for (double n : nanosPerOp) {
+      mean += n / MEASURED_ITERATIONS;
+    }
+    double variance = 0;
+    for (double n : nanosPerOp) {
+      variance += (n - mean) * (n - mean) / (MEASURED_ITERATIONS - 1);
+    }
+
+    System.out.printf(RESULT_STR, name, mean, Math.sqrt(variance)
+        , (double) bytes / ((long) ops * MEASURED_ITERATIONS), gcs);
+  }
+
+  /**
+   * Helper method that counts the garbage collections so far.
+   * @return Number of collections of all collectors
+   */
+  private static long gcCount() {
+    long count = 0;
+
+    for (GarbageCollectorMXBean gc
+        : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(gc.getCollectionCount(), 0);
+    }
+
+    return count;
+  }
+}
@@ -0,0 +1,17 @@
+/**
+ * A BetPolicy decides how much a player bets at the start of each round. Bets
+ * are in cents, so bankrolls stay exact over billions of rounds. A policy is
+ * shared by every table of a simulation, so it must not change once created.
+ *
+ * @author Aimee Shao
+ */
+public interface BetPolicy {
+
+  /**
+   * Decides the bet of a player for the next round.
+   * @param bankroll Money the player has, in cents
+   * @param trueCount Hi-Lo true count of the shoe before the round is dealt
+   * @return Bet in cents; the board never bets more than the bankroll
+   */
+  long bet(long bankroll, double trueCount);
+}
@@ -1,4 +1,13 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.SplittableRandom;
 
 /**
  * This is the game of Blackjack. It contains	a board which contains the
@@ -9,30 +18,241 @@ import java.util.Scanner;
 public class Blackjack {
 
   // Strings for argument
-  private static final String USAGE_STR = String.format("\n%s\n%s\n%s\n%s\n\n"
-    , "Usage: java Blackjack [numPlayers]" 
-    ,	"  numPlayers: equal to the number of players aside from the dealer"
+  private static final String USAGE_STR = "\n" + String.join("\n"
+    , "Usage: java Blackjack [numPlayers] [options]"
+    , "       java Blackjack --simulate numRounds [numPlayers] [options]"
+    , "       java Blackjack --generate-strategy file [options]"
+    , "       java Blackjack --serve port [options]"
+    , "       java Blackjack --load-test port [options]"
+    , "       java Blackjack --replay file"
+    , "       java Blackjack --optimize numRounds [options]"
+    , "       java Blackjack --exact [options]"
+    , "       java Blackjack --compare numRounds [options]"
+    , "  numPlayers: equal to the number of players aside from the dealer"
     , "    -- optional: default is 1 player"
-    , "    -- must be an integer");	
+    , "    -- must be an integer"
+    , "  numRounds: number of rounds to play without any interaction"
+    , "    -- players hit until their total is at least 17, or use --strategy"
+    , "    -- must be an integer"
+    , "    -- with --optimize, rounds each policy is played for at most"
+    , "    -- with --compare, rounds played at most before the differences"
+    , "       are clear"
+    , "  file: file to save the basic strategy table for the rules to"
+    , "    -- or hand history to print with --replay, checking every total"
+    , "  port: local port to host tables on, or of the server to load test"
+    , "  options:"
+    , "    --decks numDecks: number of decks in the shoe"
+    , "      -- default is 1 deck"
+    , "    --penetration percent: percent of the shoe dealt before reshuffling"
+    , "      -- default is 100, reshuffling only when the shoe runs out"
+    , "    --seed seed: seed of the random generator"
+    , "      -- same seed gives the same results for any number of threads"
+    , "    --threads numThreads: threads to play on when simulating"
+    , "      -- default is the number of processors"
+    , "    --strategy file: basic strategy table simulated players follow"
+    , "      -- must be generated for the same rules"
+    , "    --tables numTables: tables played at once when load testing"
+    , "      -- default is 100 tables"
+    , "    --rounds numRounds: rounds played at each table when load testing"
+    , "      -- default is 100 rounds"
+    , "    --record file: file to record the hand history of the game to"
+    , "      -- also records simulations, which then use one thread"
+    , "    --progress seconds: seconds between partial simulation reports"
+    , "      -- default is 10, and 0 prints none"
+    , "    --rules list: comma separated rules to play with, any of"
+    , "      -- h17: dealer hits a soft 17 instead of staying"
+    , "      -- double: double the bet on two cards for one more card"
+    , "      -- split: split a pair into two hands"
+    , "      -- surrender: give up two cards for half the bet back"
+    , "      -- insurance: side bet on the dealer's 21 when showing an ace"
+    , "      -- default is none of them"
+    , "      -- simulated players only hit or stay, so --simulate, --compare,"
+    , "         --optimize and --exact only take h17"
+    , "    --bankroll dollars: money each player starts with"
+    , "      -- default is 1000 dollars, again for every simulated session"
+    , "    --session-rounds numRounds: rounds in a simulated session"
+    , "      -- default is 1000 rounds"
+    , "    --bet sizing: how players decide their bets, one of"
+    , "      -- flat: always bet one unit"
+    , "      -- kelly: bet the Kelly fraction of the bankroll for the true"
+    , "         count"
+    , "      -- count: bet one unit per true count above 1, up to 8 units"
+    , "      -- default is flat"
+    , "    --unit dollars: smallest bet"
+    , "      -- default is 10 dollars"
+    , "    --metrics file: file to write counts and latencies of the game to"
+    , "      -- or - for the console; written every --progress seconds and at"
+    , "         the end"
+    , "    --events file: file to write the events of the game to, one per"
+    , "      line"
+    , "      -- or - for the console; events it cannot keep up with are"
+    , "         dropped and counted"
+    , "      -- simulations publishing events use one thread"
+    , "    --start-round round: deal every round from a full shoe of its own,"
+    , "      keyed by --seed and the number of the round, from this round on"
+    , "      -- any round can then be played again on its own, such as with"
+    , "         --simulate 1 --record file"
+    , "      -- default is 0, playing on from each shoe until the cut card"
+    , "    --policies list: comma separated policies --compare plays on the"
+    , "      same cards, each a total to stay at or a strategy table file"
+    , "      -- the others are compared to the first one"
+    , "      -- default is 17,16"
+    , "    --confidence percent: confidence --compare stops at once every"
+    , "      difference is clear"
+    , "      -- default is 95"
+    , "    --checkpoint file: file to save the simulated board to every"
+    , "      --progress seconds and at the end"
+    , "      -- a simulation continues from the file if it exists, playing the"
+    , "         rounds left on one thread") + "\n\n";
   private static final String ERROR_TOO_MANY_ARGS = String.format("%s\n"
     , "Error: Too many arguments");
+  private static final String ERROR_WRONG_NUM_ARGS = String.format("%s\n"
+    , "Error: Wrong number of arguments");
+  private static final String ERROR_UNKNOWN_OPT = String.format("%s\n"
+    , "Error: Unknown option \"%s\"");
+  private static final String ERROR_OUT_OF_RANGE = String.format("%s\n"
+    , "Error: Option value is out of range");
   private static final String ERROR_NOT_INT = String.format("%s\n"
     , "Error: Inputted argument needs to be an integer");
+  private static final String ERROR_IO = String.format("%s\n"
+    , "Error: %s");
+  private static final String ERROR_UNKNOWN_RULE = String.format("%s\n"
+    , "Error: Unknown rule \"%s\"");
+  private static final String ERROR_UNKNOWN_BET = String.format("%s\n"
+    , "Error: Unknown bet sizing \"%s\"");
+  private static final String ERROR_START_CHECKPOINT = String.format("%s\n"
+    , "Error: --start-round can play any rounds again without --checkpoint");
+  private static final String ERROR_SIMULATED_RULES = String.format("%s\n"
+    , "Error: only the h17 rule applies to simulated players");
+  private static final String ERROR_NUM_POLICIES = String.format("%s\n"
+    , "Error: --compare needs at least two policies");
+
+  // Command line options
+  private static final String OPT_PREFIX = "--";
+  private static final String SIMULATE_OPT = "--simulate";
+  private static final String GENERATE_OPT = "--generate-strategy";
+  private static final String SERVE_OPT = "--serve";
+  private static final String LOAD_TEST_OPT = "--load-test";
+  private static final String DECKS_OPT = "--decks";
+  private static final String PENETRATION_OPT = "--penetration";
+  private static final String SEED_OPT = "--seed";
+  private static final String THREADS_OPT = "--threads";
+  private static final String STRATEGY_OPT = "--strategy";
+  private static final String TABLES_OPT = "--tables";
+  private static final String ROUNDS_OPT = "--rounds";
+  private static final String REPLAY_OPT = "--replay";
+  private static final String OPTIMIZE_OPT = "--optimize";
+  private static final String EXACT_OPT = "--exact";
+  private static final String RECORD_OPT = "--record";
+  private static final String PROGRESS_OPT = "--progress";
+  private static final String RULES_OPT = "--rules";
+  private static final String BANKROLL_OPT = "--bankroll";
+  private static final String SESSION_ROUNDS_OPT = "--session-rounds";
+  private static final String BET_OPT = "--bet";
+  private static final String UNIT_OPT = "--unit";
+  private static final String METRICS_OPT = "--metrics";
+  private static final String CHECKPOINT_OPT = "--checkpoint";
+  private static final String EVENTS_OPT = "--events";
+  private static final String START_ROUND_OPT = "--start-round";
+  private static final String COMPARE_OPT = "--compare";
+  private static final String POLICIES_OPT = "--policies";
+  private static final String CONFIDENCE_OPT = "--confidence";
+
+  // Separator of the policies in the --policies option
+  private static final String POLICIES_SEPARATOR = ",";
+
+  // Value of the --metrics and --events options that writes to the console
+  private static final String CONSOLE_FILE_STR = "-";
+
+  // Values of the --bet option
+  private static final String FLAT_BET_STR = "flat";
+  private static final String KELLY_BET_STR = "kelly";
+  private static final String COUNT_BET_STR = "count";
+
+  // Cents in a dollar, as bankrolls and bets are kept in cents
+  private static final int CENTS_PER_DOLLAR = 100;
+
+  // String printed before a simulation's results
+  private static final String SEED_STR = "Seed: %d\n";
+
+  // String printed before continuing a simulation from its checkpoint
+  private static final String RESTORED_STR = "Continuing after round %d from"
+    + " %s.\n";
+
+  // String printed when the event log missed events
+  private static final String DROPPED_STR = "Dropped %d event(s) the event log"
+    + " could not keep up with.\n";
+
+  // Events buffered for the event log, enough for a burst of many rounds
+  private static final int EVENTS_BUFFER_SIZE = 1 << 16;
+
+  // Most milliseconds to wait for the event log when the program ends
+  private static final long EVENTS_TIMEOUT_MILLIS = 10000;
+
+  // Strings of the exact odds of a round
+  private static final String EXACT_STR = "Exact odds of a round from %d"
+    + " deck(s), over %,d positions in %.3f seconds:\n";
+  private static final String EXACT_OUTCOME_STR = "  %-12s %10.6f%%\n";
+  private static final String EXACT_EV_STR = "Expected value: %+.6f per"
+    + " hand.\n";
+
+  // String printed after generating a strategy table
+  private static final String GENERATED_STR = "Saved strategy for %d deck(s)"
+    + " to %s.\n";
+
+  // Total at which simulated players stay
+  private static final int SIMULATION_STAY_AT = 17;
 
   // Strings during interactive loop
   private static final String CLEAR_CONSOLE_STR = "\033[H\033[2J";
   private static final String NEXT_PLAYER_STR	= String.format("\n%s"
     , "Please press enter to switch to next player.");
-  private static final String HIT_STAY_STR = String.format("%s"
+  static final String HIT_STAY_STR = String.format("%s"
     , "Would you like to `hit`, `stay`, or receive a `hint`?");
-  private static final String INPUT_INVALID_STR = String.format("%s\n%s\n"
+  static final String INPUT_INVALID_STR = String.format("%s\n%s\n"
     , "\"%s\" is not accepted."
     , "Please enter hit, stay, or hint.");
+  static final String NOT_ALLOWED_STR = String.format("%s\n"
+    , "\"%s\" is not allowed right now.");
 
   // String comparisons with user input
-  private static final String HIT_STR = "hit";
-  private static final String STAY_STR = "stay";
-  private static final String HINT_STR = "hint";
+  static final String HIT_STR = "hit";
+  static final String STAY_STR = "stay";
+  static final String HINT_STR = "hint";
+  static final String DOUBLE_STR = "double";
+  static final String SPLIT_STR = "split";
+  static final String SURRENDER_STR = "surrender";
+  static final String INSURANCE_STR = "insurance";
+
+  // Inputs of Policy's actions, indexed by action
+  private static final String[] ACTION_INPUT_STRS = {HIT_STR, STAY_STR
+      , DOUBLE_STR, SPLIT_STR, SURRENDER_STR};
+
+  // Values of the options, set by parseOptions
+  private static int numDecks = Rules.DEFAULT_NUM_DECKS;
+  private static int penetration = Rules.DEFAULT_PENETRATION;
+  private static long seed = new SplittableRandom().nextLong();
+  private static int numThreads = Runtime.getRuntime().availableProcessors();
+  private static String strategyFile = null; // none unless given
+  private static int numTables = 100;
+  private static int numRoundsPerTable = 100;
+  private static String recordFile = null; // none unless given
+  private static int progressSeconds = 10;
+  private static int ruleOptions = Rules.NO_OPTIONS;
+  private static long bankroll = Player.DEFAULT_BANKROLL / CENTS_PER_DOLLAR;
+  private static long sessionRounds = Simulator.DEFAULT_SESSION_ROUNDS;
+  private static String betSizing = FLAT_BET_STR;
+  private static long betUnit = FlatBet.DEFAULT_UNIT / CENTS_PER_DOLLAR;
+  private static BetPolicy betPolicy; // created from --bet and --unit
+  private static boolean betting = false; // whether --bankroll, --bet or
+                                          // --unit was given
+  private static String metricsFile = null; // none unless given
+  private static String checkpointFile = null; // none unless given
+  private static String eventsFile = null; // none unless given
+  private static GameEventPublisher events = null; // created from --events
+  private static long startRound = 0; // 0 unless given
+  private static String policies = "17,16";
+  private static int confidence = 95;
 
   /**
    * This method is used to start the Blackjack program and is the interactive
@@ -43,40 +263,95 @@ public class Blackjack {
   public static void main (String[] args) {
 
     int numPlayers = 1; // number of players besides Dealer, default to 1
+    String mode = null; // mode to run instead of the game, if any
+    String modeArg = null; // argument of the mode
     Board board; // Board containing the deck and players
+    Output out = new BufferedOutput(System.out); // Sent once per prompt
     Scanner in = new Scanner(System.in); // Used to read input from user
 
-    // numPlayers is optional argument
-    // check if inputted too many arguments
-    if (args.length > 1) {
-      System.err.print(ERROR_TOO_MANY_ARGS);
-      System.err.print(USAGE_STR);
-      System.exit(0);
-    }
-
-    // Check if inputted argument has correct format (an integer)
-    if (args.length == 1) {
-      try {
-        numPlayers = Integer.parseInt(args[0]);
-      } catch (Exception e) {
-        System.err.print(ERROR_NOT_INT);
+    // modes besides the game need an argument
+    int a = 0; // index of the next argument to parse
+    if (args.length > 0 && (args[0].equals(SIMULATE_OPT)
+        || args[0].equals(GENERATE_OPT) || args[0].equals(SERVE_OPT)
+        || args[0].equals(LOAD_TEST_OPT) || args[0].equals(REPLAY_OPT)
+        || args[0].equals(OPTIMIZE_OPT) || args[0].equals(COMPARE_OPT))) {
+      if (args.length < 2) {
+        System.err.print(ERROR_WRONG_NUM_ARGS);
         System.err.print(USAGE_STR);
         System.exit(0);
       }
+
+      mode = args[0];
+      modeArg = args[1];
+      a = 2;
+    } else if (args.length > 0 && args[0].equals(EXACT_OPT)) {
+      mode = args[0];
+      a = 1;
+    }
+
+    // numPlayers is optional argument
+    // Check if inputted argument has correct format (an integer)
+    if (a < args.length && !args[a].startsWith(OPT_PREFIX)) {
+      numPlayers = parseIntArg(args[a]);
+      a += 1;
+    }
+
+    parseOptions(args, a);
+    startMetrics();
+    startEvents();
+    Rules rules = new Rules(numDecks, penetration, ruleOptions);
+
+    // run a mode instead of the interactive game
+    if (SIMULATE_OPT.equals(mode)) {
+      simulate(parseLongArg(modeArg), numPlayers, rules);
+      return;
+    } else if (GENERATE_OPT.equals(mode)) {
+      generateStrategy(modeArg, rules);
+      return;
+    } else if (SERVE_OPT.equals(mode)) {
+      serve(parseIntArg(modeArg), rules);
+      return;
+    } else if (LOAD_TEST_OPT.equals(mode)) {
+      loadTest(parseIntArg(modeArg));
+      return;
+    } else if (REPLAY_OPT.equals(mode)) {
+      replay(modeArg);
+      return;
+    } else if (OPTIMIZE_OPT.equals(mode)) {
+      optimize(parseLongArg(modeArg), rules);
+      return;
+    } else if (EXACT_OPT.equals(mode)) {
+      exact(rules);
+      return;
+    } else if (COMPARE_OPT.equals(mode)) {
+      compare(parseLongArg(modeArg), rules);
+      return;
     }
 
     // Create board and set it up
-    board = new Board(numPlayers);
+    board = new Board(numPlayers, rules, out, new CardRandom(seed));
+    board.setRecorder(openRecorder());
+    board.setEvents(events);
+    if (startRound > 0)
+      board.setCounterRounds(seed, startRound);
+    board.setBetPolicy(betPolicy);
+    if (betting) {
+      board.setBankrolls(bankroll * CENTS_PER_DOLLAR);
+      board.setMoneyShown(true);
+    } else { // the game plays without money, as it always has
+      board.setBankrolls(Player.UNLIMITED_BANKROLL);
+    }
     board.setup();
 
     // interactive loop till game ends
     while(true) {
       // clear console so next player can't see previous player's hand
-      System.out.print(CLEAR_CONSOLE_STR);
+      out.print(CLEAR_CONSOLE_STR);
 
       // Set up console for active player
       board.printBoard();
       board.printActivePlayer();
+      out.flush();
       in.nextLine(); // active player needs to confirm presence
 
       // Show player's hand and current total
@@ -84,40 +359,587 @@ public class Blackjack {
       board.printActiveTotal();
 
       // Prompt to hit or stay 
-      System.out.println(HIT_STAY_STR);
+      board.printActiveActions();
+      out.println(HIT_STAY_STR);
+      out.flush();
       String input = in.nextLine();
 
-      // Reprompt until "stay" or bust
+      // Reprompt until "stay" or the hand is over
       while (!input.equalsIgnoreCase(STAY_STR)) {
-        // hit player
-        if (input.equalsIgnoreCase(HIT_STR)) {
-        	final boolean bust = board.hitPlayer();
+        int action = parseAction(input);
+
+        // hit, double, split or surrender
+        if (action >= 0 && board.isAllowed(action)) {
+        	final boolean over = board.play(action);
           board.printActiveHand();
           board.printActiveTotal();
 
-          // check if busted
-          if (bust) {
-            System.out.println(NEXT_PLAYER_STR);
+          // check if busted, doubled or otherwise done with the hand
+          if (over) {
+            out.println(NEXT_PLAYER_STR);
+            out.flush();
             in.nextLine(); // Wait for player's confirmation to move on
             break;
           }
-        } else if (input.equals(HINT_STR)) { // player wants hint
+        } else if (input.equalsIgnoreCase(HINT_STR)) { // player wants hint
+          board.recordAction(HandRecorder.HINT);
           board.printActiveHint();
+        } else if (input.equalsIgnoreCase(INSURANCE_STR) && board.canInsure()) {
+          board.insure();
+        } else if (action >= 0 || input.equalsIgnoreCase(INSURANCE_STR)) {
+          out.printf(NOT_ALLOWED_STR, input); // the rules do not allow it now
         }	else { // input is none of the above, so print invalid input message  
-          System.out.printf(INPUT_INVALID_STR, input);
+          out.printf(INPUT_INVALID_STR, input);
         }
 
         // Reprompt
-        System.out.println(HIT_STAY_STR);
+        board.printActiveActions();
+        out.println(HIT_STAY_STR);
+        out.flush();
         input = in.nextLine();
       }
+
+      if (input.equalsIgnoreCase(STAY_STR))
+        board.play(Policy.STAY);
 			
       // move on to next player and check if all players went
       if (board.nextPlayer() == numPlayers + 1) {
         // clear screen and print end results
-        System.out.print(CLEAR_CONSOLE_STR);
+        out.print(CLEAR_CONSOLE_STR);
         board.gameEnd();
       }
     }
   }
+
+  /**
+   * Parses the options after the positional arguments and stores their
+   * values, exiting with the usage if an option is not valid.
+   * @param args Command line arguments
+   * @param start Index of the first option
+   * @return Nothing.
+   */
+  private static void parseOptions(String[] args, int start) {
+    for (int a = start; a < args.length; a += 2) {
+      // check if inputted too many arguments
+      if (!args[a].startsWith(OPT_PREFIX)) {
+        System.err.print(ERROR_TOO_MANY_ARGS);
+        System.err.print(USAGE_STR);
+        System.exit(0);
+      }
+
+      // every option needs a value
+      if (a + 1 == args.length) {
+        System.err.print(ERROR_WRONG_NUM_ARGS);
+        System.err.print(USAGE_STR);
+        System.exit(0);
+      }
+
+      if (args[a].equals(DECKS_OPT))
+        numDecks = parseIntArg(args[a + 1]);
+      else if (args[a].equals(PENETRATION_OPT))
+        penetration = parseIntArg(args[a + 1]);
+      else if (args[a].equals(SEED_OPT))
+        seed = parseLongArg(args[a + 1]);
+      else if (args[a].equals(THREADS_OPT))
+        numThreads = parseIntArg(args[a + 1]);
+      else if (args[a].equals(STRATEGY_OPT))
+        strategyFile = args[a + 1];
+      else if (args[a].equals(TABLES_OPT))
+        numTables = parseIntArg(args[a + 1]);
+      else if (args[a].equals(ROUNDS_OPT))
+        numRoundsPerTable = parseIntArg(args[a + 1]);
+      else if (args[a].equals(RECORD_OPT))
+        recordFile = args[a + 1];
+      else if (args[a].equals(PROGRESS_OPT))
+        progressSeconds = parseIntArg(args[a + 1]);
+      else if (args[a].equals(RULES_OPT))
+        ruleOptions = parseRulesArg(args[a + 1]);
+      else if (args[a].equals(BANKROLL_OPT)) {
+        bankroll = parseIntArg(args[a + 1]);
+        betting = true;
+      } else if (args[a].equals(SESSION_ROUNDS_OPT))
+        sessionRounds = parseLongArg(args[a + 1]);
+      else if (args[a].equals(BET_OPT)) {
+        betSizing = args[a + 1];
+        betting = true;
+      } else if (args[a].equals(UNIT_OPT)) {
+        betUnit = parseIntArg(args[a + 1]);
+        betting = true;
+      } else if (args[a].equals(METRICS_OPT))
+        metricsFile = args[a + 1];
+      else if (args[a].equals(CHECKPOINT_OPT))
+        checkpointFile = args[a + 1];
+      else if (args[a].equals(EVENTS_OPT))
+        eventsFile = args[a + 1];
+      else if (args[a].equals(START_ROUND_OPT))
+        startRound = parseLongArg(args[a + 1]);
+      else if (args[a].equals(POLICIES_OPT))
+        policies = args[a + 1];
+      else if (args[a].equals(CONFIDENCE_OPT))
+        confidence = parseIntArg(args[a + 1]);
+      else {
+        System.err.printf(ERROR_UNKNOWN_OPT, args[a]);
+        System.err.print(USAGE_STR);
+        System.exit(0);
+      }
+    }
+
+    // check the values are in range
+    if (numDecks < 1 || penetration < 1 || penetration > 100
+        || numThreads < 1 || numTables < 1 || numRoundsPerTable < 0
+        || progressSeconds < 0 || bankroll < 0 || sessionRounds < 1
+        || betUnit < 1
+        || startRound < 0 || confidence < 1 || confidence > 99) {
+      System.err.print(ERROR_OUT_OF_RANGE);
+      System.err.print(USAGE_STR);
+      System.exit(0);
+    }
+
+    betPolicy = newBetPolicy();
+  }
+
+  /**
+   * Plays rounds without any interaction and prints the results and the
+   * throughput of the simulation.
+   * @param numRounds Number of rounds to play
+   * @param numPlayers Number of players besides the dealer
+   * @param rules Rules of the tables
+   * @return Nothing.
+   */
+  private static void simulate(long numRounds, int numPlayers, Rules rules) {
+    checkSimulatedRules(rules);
+
+    if (checkpointFile != null && startRound > 0) {
+      System.err.print(ERROR_START_CHECKPOINT);
+      System.err.print(USAGE_STR);
+      System.exit(0);
+    }
+
+    Policy policy = loadPolicy(rules);
+    ParallelSimulator simulator = new ParallelSimulator(numPlayers, rules
+        , policy, numThreads);
+
+    // warm up so the timed run measures compiled code, and leave the warm up
+    // rounds out of the metrics
+    simulator.run(Math.min(numRounds, 100000), seed);
+    if (Metrics.ENABLED)
+      Metrics.reset();
+
+    if (checkpointFile != null) {
+      simulateFromCheckpoint(numRounds, numPlayers, rules, policy);
+      return;
+    }
+
+    HandRecorder recorder = openRecorder();
+    simulator.setRecorder(recorder);
+    simulator.setEvents(events);
+    simulator.setFirstRound(startRound);
+    simulator.setBetting(betPolicy, bankroll * CENTS_PER_DOLLAR);
+    simulator.setSessionRounds(sessionRounds);
+    if (progressSeconds > 0)
+      simulator.setProgress(new BufferedOutput(System.out), progressSeconds);
+
+    System.out.printf(SEED_STR, seed);
+    System.out.print(simulator.run(numRounds, seed));
+
+    if (recorder != null)
+      recorder.close();
+  }
+
+  /**
+   * Exits if the rules have options besides h17. Simulated players only hit
+   * or stay, so any other option would quietly play the original rules.
+   * @param rules Rules of the tables
+   * @return Nothing.
+   */
+  private static void checkSimulatedRules(Rules rules) {
+    if ((rules.getOptions() & ~Rules.HIT_SOFT_17) != 0) {
+      System.err.print(ERROR_SIMULATED_RULES);
+      System.err.print(USAGE_STR);
+      System.exit(0);
+    }
+  }
+
+  /**
+   * Returns the policy simulated players follow: the --strategy table if
+   * given, otherwise staying at 17. Exits if the table cannot be loaded.
+   * @param rules Rules the table must be generated for
+   * @return The policy
+   */
+  private static Policy loadPolicy(Rules rules) {
+    if (strategyFile == null)
+      return new ThresholdPolicy(SIMULATION_STAY_AT);
+
+    try {
+      return StrategyTable.load(Paths.get(strategyFile), rules);
+    } catch (IOException e) {
+      System.err.printf(ERROR_IO, e.getMessage());
+      System.exit(0);
+      return null;
+    }
+  }
+
+  /**
+   * Plays the rounds of a simulation on one board, which is saved to the
+   * --checkpoint file with the results so far as it plays. If the file
+   * exists, the board and the results are restored from it first and only
+   * the rounds left are played.
+   * @param numRounds Number of rounds of the whole simulation
+   * @param numPlayers Number of players besides the dealer
+   * @param rules Rules of the table
+   * @param policy Policy used by every player
+   * @return Nothing.
+   */
+  private static void simulateFromCheckpoint(long numRounds, int numPlayers
+      , Rules rules, Policy policy) {
+    Simulator simulator = new Simulator(numPlayers, rules, policy
+        , new CardRandom(seed));
+    simulator.setBetting(betPolicy, bankroll * CENTS_PER_DOLLAR);
+    simulator.setSessionRounds(sessionRounds);
+
+    Path file = Paths.get(checkpointFile);
+    if (Files.exists(file)) {
+      try {
+        simulator.restore(file);
+      } catch (IOException e) {
+        System.err.printf(ERROR_IO, e.getMessage());
+        System.exit(0);
+      }
+      System.out.printf(RESTORED_STR, simulator.getNumRounds(), file);
+    }
+
+    HandRecorder recorder = openRecorder();
+    Checkpointer checkpointer = new Checkpointer(file);
+    simulator.setRecorder(recorder);
+    simulator.setEvents(events);
+    simulator.setCheckpointer(checkpointer, progressSeconds);
+
+    System.out.printf(SEED_STR, seed);
+    try {
+      System.out.print(simulator.run(Math.max(0
+          , numRounds - simulator.getNumRounds())));
+      checkpointer.close();
+    } catch (UncheckedIOException e) {
+      System.err.printf(ERROR_IO, e.getCause().getMessage());
+      System.exit(0);
+    }
+
+    if (recorder != null)
+      recorder.close();
+  }
+
+  /**
+   * Generates the basic strategy table for the rules and saves it.
+   * @param file File to save the table to
+   * @param rules Rules to generate the table for
+   * @return Nothing.
+   */
+  private static void generateStrategy(String file, Rules rules) {
+    try {
+      StrategyTable.generate(rules).save(Paths.get(file));
+    } catch (IOException e) {
+      System.err.printf(ERROR_IO, e.getMessage());
+      System.exit(0);
+    }
+
+    System.out.printf(GENERATED_STR, rules.getNumDecks(), file);
+  }
+
+  /**
+   * Searches for the up card thresholds with the best expected value and
+   * prints them, along with every iteration of the search.
+   * @param numRounds Number of rounds each policy is played for at most
+   * @param rules Rules of the tables
+   * @return Nothing.
+   */
+  private static void optimize(long numRounds, Rules rules) {
+    checkSimulatedRules(rules);
+
+    PolicyOptimizer optimizer = new PolicyOptimizer(rules, numRounds, seed
+        , numThreads);
+    optimizer.setProgress(new BufferedOutput(System.out));
+
+    System.out.printf(SEED_STR, seed);
+    optimizer.optimize(new UpCardThresholdPolicy(SIMULATION_STAY_AT));
+    System.out.print(optimizer);
+  }
+
+  /**
+   * Calculates the exact chances of each outcome of a round from a full shoe
+   * and prints them with the expected value.
+   * @param rules Rules of the table
+   * @return Nothing.
+   */
+  private static void exact(Rules rules) {
+    checkSimulatedRules(rules);
+
+    int[] deck = new int[Shoe.NUM_OF_NUMBERS];
+    Arrays.fill(deck, Shoe.NUM_OF_SUITS * rules.getNumDecks());
+
+    long start = System.nanoTime();
+    RoundOdds roundOdds = new RoundOdds(rules, loadPolicy(rules), numThreads);
+    double[] odds = roundOdds.calculate(deck);
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.printf(EXACT_STR, rules.getNumDecks()
+        , roundOdds.getNumPositions(), seconds);
+    for (int o = 0; o < odds.length; o++) {
+      if (o != RoundResult.SURRENDERS) // the player never surrenders
+        System.out.printf(EXACT_OUTCOME_STR, SimulationResult.OUTCOME_NAMES[o]
+            , 100 * odds[o]);
+    }
+    System.out.printf(EXACT_EV_STR, RoundOdds.expectedValue(odds));
+  }
+
+  /**
+   * Plays the --policies on the same cards until the difference of every
+   * policy from the first one is clear at the --confidence, and prints the
+   * expected values and differences.
+   * @param maxRounds Most rounds to play
+   * @param rules Rules of the table
+   * @return Nothing.
+   */
+  private static void compare(long maxRounds, Rules rules) {
+    checkSimulatedRules(rules);
+
+    String[] names = policies.split(POLICIES_SEPARATOR);
+    if (names.length < 2) {
+      System.err.print(ERROR_NUM_POLICIES);
+      System.err.print(USAGE_STR);
+      System.exit(0);
+    }
+
+    // a policy is a total to stay at if it starts with a digit, otherwise a
+    // strategy table file
+    Policy[] compared = new Policy[names.length];
+    for (int k = 0; k < names.length; k++) {
+      if (!names[k].isEmpty() && Character.isDigit(names[k].charAt(0))) {
+        compared[k] = new ThresholdPolicy(parseIntArg(names[k]));
+        continue;
+      }
+
+      try {
+        compared[k] = StrategyTable.load(Paths.get(names[k]), rules);
+      } catch (IOException e) {
+        System.err.printf(ERROR_IO, e.getMessage());
+        System.exit(0);
+      }
+    }
+
+    PairedSimulator simulator = new PairedSimulator(rules, compared, names
+        , new CardRandom(seed));
+
+    System.out.printf(SEED_STR, seed);
+    simulator.run(maxRounds, confidence);
+    System.out.print(simulator);
+  }
+
+  /**
+   * Hosts tables on a local port until the program is stopped.
+   * @param port Port to listen on
+   * @param rules Rules of every table
+   * @return Nothing.
+   */
+  private static void serve(int port, Rules rules) {
+    try {
+      new TableServer(port, rules, seed).run();
+    } catch (IOException e) {
+      System.err.printf(ERROR_IO, e.getMessage());
+      System.exit(0);
+    }
+  }
+
+  /**
+   * Plays many tables at once against a local server and prints how fast the
+   * server answered.
+   * @param port Port of the server
+   * @return Nothing.
+   */
+  private static void loadTest(int port) {
+    try {
+      System.out.print(new LoadGenerator(port, numTables, numRoundsPerTable)
+          .run());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Prints every round of a hand history and checks the recorded totals.
+   * @param file File holding the hand history
+   * @return Nothing.
+   */
+  private static void replay(String file) {
+    try (HandLog log = new HandLog(Paths.get(file))) {
+      new HandReplay(new BufferedOutput(System.out)).run(log);
+    } catch (IOException e) {
+      System.err.printf(ERROR_IO, e.getMessage());
+      System.exit(0);
+    }
+  }
+
+  /**
+   * Turns on the metrics of the --metrics option and starts writing them,
+   * exiting if the file cannot be written. This must run before any board is
+   * created, since the metrics are switched on when they are first used.
+   * @return Nothing.
+   */
+  private static void startMetrics() {
+    if (metricsFile == null)
+      return;
+
+    System.setProperty(Metrics.ENABLED_PROPERTY, Boolean.TRUE.toString());
+
+    PrintStream metricsOut = System.out;
+    if (!metricsFile.equals(CONSOLE_FILE_STR)) {
+      try {
+        metricsOut = new PrintStream(new FileOutputStream(metricsFile));
+      } catch (IOException e) {
+        System.err.printf(ERROR_IO, e.getMessage());
+        System.exit(0);
+      }
+    }
+
+    if (progressSeconds > 0)
+      Metrics.startDumping(metricsOut, progressSeconds);
+
+    // the last dump also runs when the game ends with System.exit
+    PrintStream out = metricsOut;
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> Metrics.dump(out)));
+  }
+
+  /**
+   * Starts publishing the events of the game to the log of the --events
+   * option, exiting if the file cannot be written. When the program ends,
+   * the publisher is closed and the events still buffered are written.
+   * @return Nothing.
+   */
+  private static void startEvents() {
+    if (eventsFile == null)
+      return;
+
+    Output eventsOut = new BufferedOutput(System.out);
+    if (!eventsFile.equals(CONSOLE_FILE_STR)) {
+      try {
+        eventsOut = new BufferedOutput(new FileOutputStream(eventsFile));
+      } catch (IOException e) {
+        System.err.printf(ERROR_IO, e.getMessage());
+        System.exit(0);
+      }
+    }
+
+    EventLog log = new EventLog(eventsOut);
+    events = new GameEventPublisher(EVENTS_BUFFER_SIZE);
+    events.subscribe(log);
+
+    // the game ends with System.exit, so the log is finished by a hook
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      events.close();
+      log.await(EVENTS_TIMEOUT_MILLIS);
+      if (events.getNumDropped() > 0)
+        System.err.printf(DROPPED_STR, events.getNumDropped());
+    }));
+  }
+
+  /**
+   * Opens the recorder of the --record option, exiting if the file cannot be
+   * written.
+   * @return The recorder, or null if nothing should be recorded
+   */
+  private static HandRecorder openRecorder() {
+    if (recordFile == null)
+      return null;
+
+    try {
+      return new HandRecorder(Paths.get(recordFile), seed);
+    } catch (IOException e) {
+      System.err.printf(ERROR_IO, e.getMessage());
+      System.exit(0);
+      return null;
+    }
+  }
+
+  /**
+   * Creates the bet policy of the --bet option, exiting with the usage if it
+   * is not one.
+   * @return The bet policy
+   */
+  private static BetPolicy newBetPolicy() {
+    long unit = betUnit * CENTS_PER_DOLLAR;
+
+    if (betSizing.equals(FLAT_BET_STR))
+      return new FlatBet(unit);
+    else if (betSizing.equals(KELLY_BET_STR))
+      return new KellyBet(unit);
+    else if (betSizing.equals(COUNT_BET_STR))
+      return new CountBet(unit, CountBet.DEFAULT_MAX_UNITS);
+
+    System.err.printf(ERROR_UNKNOWN_BET, betSizing);
+    System.err.print(USAGE_STR);
+    System.exit(0);
+    return null;
+  }
+
+  /**
+   * Finds the action a player typed.
+   * @param input What the player typed
+   * @return One of Policy's actions, or -1 if the input is not one
+   */
+  static int parseAction(String input) {
+    for (int a = 0; a < ACTION_INPUT_STRS.length; a++) {
+      if (input.equalsIgnoreCase(ACTION_INPUT_STRS[a]))
+        return a;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Parses an integer argument, exiting with the usage if it is not one.
+   * @param arg The argument to parse
+   * @return The integer value of the argument
+   */
+  private static int parseIntArg(String arg) {
+    try {
+      return Integer.parseInt(arg);
+    } catch (Exception e) {
+      System.err.print(ERROR_NOT_INT);
+      System.err.print(USAGE_STR);
+      System.exit(0);
+      return 0;
+    }
+  }
+
+  /**
+   * Parses the list of rule options, exiting with the usage if one is not a
+   * rule.
+   * @param arg The argument to parse
+   * @return The rule options, combined with |
+   */
+  private static int parseRulesArg(String arg) {
+    try {
+      return Rules.parseOptions(arg);
+    } catch (IllegalArgumentException e) {
+      System.err.printf(ERROR_UNKNOWN_RULE, e.getMessage());
+      System.err.print(USAGE_STR);
+      System.exit(0);
+      return 0;
+    }
+  }
+
+  /**
+   * Parses a long integer argument, exiting with the usage if it is not one.
+   * @param arg The argument to parse
+   * @return The value of the argument
+   */
+  private static long parseLongArg(String arg) {
+    try {
+      return Long.parseLong(arg);
+    } catch (Exception e) {
+      System.err.print(ERROR_NOT_INT);
+      System.err.print(USAGE_STR);
+      System.exit(0);
+      return 0;
+    }
+  }
 }
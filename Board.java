@@ -1,20 +1,19 @@
-import java.util.Random;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 /**
  * Board is the playing field of Blackjack. It contains the dealer, the players,
  * and the deck of cards.
  *
+ * The state of the board can be saved between rounds and restored into a
+ * board with the same rules and number of players, which then deals and plays
+ * exactly as the saved board would have.
+ *
  * @author Aimee Shao
  */
 public class Board
 {
-  // Used in the deck
-  private static final int NUM_OF_NUMBERS = 13;
-  private static final int NUM_OF_SUITS = 4;
-
   // Minimum for dealer to stay
-  private static final int DEALER_MINIMUM = 17;
+  static final int DEALER_MINIMUM = 17;
 
   // String for dealing
   private static final String DEALING_STR = "Dealing... ";
@@ -29,13 +28,39 @@ public class Board
   // Hitting, busting, and hint
   private static final String PLAYER_HIT_STR = "\nYou got a %s!\n";
   private static final String PLAYER_BUSTED_STR = "You busted.";
-  private static final String PLAYER_HINT_STR = String.format("\n%s%s\n\n"
+
+  // Doubling, splitting, surrendering and insurance
+  private static final String DOUBLED_STR = "\nYou doubled your bet.";
+  private static final String SPLIT_STR = "\nYou split into %d hands.\n";
+  private static final String SURRENDERED_STR = "\nYou surrendered half of"
+      + " your bet.";
+  private static final String INSURED_STR = "\nYou took insurance.";
+  private static final String ACTIONS_STR = "You may also %s.\n";
+  private static final String[] ACTION_STRS = {"", "", "`double`", "`split`"
+      , "`surrender`"};
+  private static final String INSURANCE_ACTION_STR = "take `insurance`";
+  private static final String ACTIONS_OR_STR = " or ";
+  private static final String PLAYER_HINT_STR = String.format("\n%s%s\n"
       , "You have a %.2f%% chance of busting on your "
       , "next hit based on what you know.");
+  private static final String DEALER_ODDS_STR = String.format("%s%s\n"
+      , "The dealer ends with 17: %.2f%%, 18: %.2f%%, 19: %.2f%%, "
+      , "20: %.2f%%, 21: %.2f%% or busts: %.2f%%.");
+
+  private static final String ADVICE_STR = String.format("%s%s\n\n"
+      , "Hitting has an expected value of %+.3f and staying %+.3f, "
+      , "so you should %s.");
+  private static final String ADVICE_HIT_STR = "hit";
+  private static final String ADVICE_STAY_STR = "stay";
+
+  // Maximum number of compositions remembered by the dealer odds and advisor
+  static final int DEALER_ODDS_CACHE_SIZE = 1024;
+  static final int ADVISOR_CACHE_SIZE = 4096;
 
   // Hand and sum
   private static final String PLAYER_HAND_STR = "Your hand contains ";
-  private static final String PLAYER_TOTAL_STR = "This sums up to be %d";
+  private static final String PLAYER_HANDS_STR = "Your hand %d of %d contains ";
+  static final String PLAYER_TOTAL_STR = "This sums up to be %d";
   private static final String PLAYER_ACE_STR = " with %d ace(s) counted as ";
   private static final String PLAYER_ACE_ELEVEN_STR = "11";
   private static final String PLAYER_ACE_ONE_STR = "1";
@@ -43,12 +68,16 @@ public class Board
   private static final String COMMA_STR = ", ";
   private static final String PERIOD_STR = ".";
 
+  // Strings of the cards, indexed by card number
+  static final String[] CARD_STRS = {"", "A", "2", "3", "4", "5", "6"
+      , "7", "8", "9", "10", "J", "Q", "K"};
+
   // Strings for printing board
   private static final String DEALER_CARD_STR = "Dealer is showing a %s.\n";
   private static final String OTHERS_CARD_STR = "Player %d is showing a %s.\n";
 
   // Strings for end game results
-  private static final String DEALER_TOTAL_STR = String.format("%s\n\n"
+  static final String DEALER_TOTAL_STR = String.format("%s\n\n"
       , "Dealer has a total of %d.");
   private static final String PLAYER_STR = String.format("%s"
       , "Player %d has a total of %d, so he ");
@@ -57,17 +86,69 @@ public class Board
   private static final String LOSES_STR = "loses.";
   private static final String LOSES_BUST_STR = "loses due to busting.";
   private static final String TIES_STR = "ties with the dealer.";
+  private static final String SURRENDERS_STR = "surrenders.";
+  private static final String BLACKJACK_STR = "wins with a blackjack!";
+  private static final String INSURANCE_WINS_STR = "Player %d's insurance"
+      + " pays 2 to 1.\n";
+  private static final String INSURANCE_LOSES_STR = "Player %d loses the"
+      + " insurance.\n";
+  private static final String BET_STR = "Player %d bets %s.\n";
+  private static final String BANKROLL_STR = "Player %d's bankroll is now %s"
+      + " (%s%s).\n";
+  private static final String PLUS_STR = "+";
+
+  // Format of an amount of money, from its dollars and cents
+  private static final String MONEY_STR = "%s$%,d.%02d";
+  private static final String MINUS_STR = "-";
+  private static final String NO_SIGN_STR = "";
+
+  // Error when a policy breaks the rules
+  private static final String ERROR_NOT_ALLOWED = "Policy chose action %d,"
+      + " which is not allowed";
 
-  private int[] deck; // count of each card number 1-13 in deck
+  // Error when restoring the state of another board
+  private static final String ERROR_OTHER_BOARD = "state is of a board with %d"
+      + " player(s), not %d";
+
+  // Actions that are always allowed
+  private static final int BASIC_ACTIONS = 1 << Policy.HIT | 1 << Policy.STAY;
+
+  private Shoe shoe; // the deck of cards that have not been dealt
   private Player[] players; // array of the players; dealer is players[0]
   private int activePlayer; // player whose turn it is
   private int[] faceUpCards; // one card from each player visible to everyone
 
   // variables to keep track of deck
-  private int cardsInDeck = 0; // number of cards in the deck
-  private int refillCount = 0; // number of times we added a deck
+  private int refillCount = 0; // number of shoes added since last reshuffle
+  private long counterKey; // seed every round's shoe is keyed by, if any
+  private long nextRound = 0; // number of the next round of a counter-based
+                              // game from 1, or 0 if the shoe carries over
 
-  private Random rand; // random generator used in dealing cards
+  private Output out; // where everything the players see is written
+  private boolean watched; // whether anybody sees the output
+  private RoundResult result; // results of the last round, reused every round
+  private DealerOdds dealerOdds; // calculates chances of dealer's final total;
+                                 // shared or created on the first hint
+  private Advisor advisor; // recommends whether to hit or stay; shared or
+                           // created on the first hint
+  private HandRecorder recorder = null; // records the rounds, if any
+  private GameEventPublisher events = null; // publishes the rounds, if any
+  private CardStream stream = null; // deals the cards shared with other
+                                    // boards, if any
+  private int streamIndex = 0; // index of the round's next card in the stream
+  private BetPolicy betPolicy; // decides how much the players bet
+  private boolean moneyShown = false; // whether bets and bankrolls are
+                                      // printed
+
+  // rules of the table, resolved once so that rounds do not check them again
+  private final int dealerSoftStand; // dealer stays on soft totals from this
+  private final int twoCardActions; // actions allowed on two cards of a hand
+  private final int surrenderActions; // SURRENDER if allowed, otherwise 0
+  private final boolean splitAllowed; // whether pairs can be split
+  private final boolean insuranceAllowed; // whether insurance is offered
+  private final boolean optionsAllowed; // whether any action besides hit and
+                                        // stay is allowed
+  private final boolean hitSoft17; // whether the dealer hits a soft 17
 
   /**
    * This is the constructor for the Board, initializing variables
@@ -75,9 +156,33 @@ public class Board
    * @return None.
    */
   Board(int numPlayers) {
+    this(numPlayers, new BufferedOutput(System.out));
+  }
+
+  /**
+   * Constructor for the Board which writes to the given output, such as a
+   * NullOutput to run without any console output.
+   * @param numPlayers Number of players besides the dealer.
+   * @param out Where everything the players see is written.
+   * @return None.
+   */
+  Board(int numPlayers, Output out) {
+    this(numPlayers, new Rules(), out, new CardRandom());
+  }
+
+  /**
+   * Constructor for the Board that deals from the given random generator, so
+   * the same generator state always deals the same cards.
+   * @param numPlayers Number of players besides the dealer.
+   * @param rules Rules of the table, such as the number of decks.
+   * @param out Where everything the players see is written.
+   * @param rand Random generator used in dealing cards.
+   * @return None.
+   */
+  Board(int numPlayers, Rules rules, Output out, CardRandom rand) {
 		
-    // Initialize deck which has 13 numbers
-    deck = new int[NUM_OF_NUMBERS];
+    // Initialize deck, which starts empty until the first refill
+    shoe = new Shoe(rules.getNumDecks(), rules.getPenetration(), rand);
 
     // Create all players including dealer
     players = new Player[numPlayers + 1]; // Add 1 because dealer is players[0]
@@ -88,7 +193,20 @@ public class Board
     // Initialize the faceUpCards array
     faceUpCards = new int[numPlayers + 1];
 
-    rand = new Random();
+
+    this.out = out;
+    watched = out.isWatched();
+    result = new RoundResult(numPlayers);
+    betPolicy = new FlatBet(FlatBet.DEFAULT_UNIT);
+
+    dealerSoftStand = rules.hitsSoft17() ? DEALER_MINIMUM + 1 : DEALER_MINIMUM;
+    twoCardActions = rules.allowsDouble() ? 1 << Policy.DOUBLE : 0;
+    surrenderActions = rules.allowsSurrender() ? 1 << Policy.SURRENDER : 0;
+    splitAllowed = rules.allowsSplit();
+    insuranceAllowed = rules.allowsInsurance();
+    optionsAllowed = twoCardActions != 0 || surrenderActions != 0
+        || splitAllowed;
+    hitSoft17 = rules.hitsSoft17();
   }
 
   /**
@@ -97,26 +215,58 @@ public class Board
    * @return None.
    */
   public void setup() {
-    // refill deck
-    refillDeck();
+    // reshuffle between rounds once the cut card came out, otherwise keep
+    // playing from the same shoe; a counter-based round always starts from
+    // a shoe of its own, and a shared stream reshuffles on its own
+    long round = nextRound;
+    if (stream != null) {
+      streamIndex = 0;
+    } else if (round > 0) {
+      shoe.restart(counterKey, round - 1);
+      refillCount = 1; // the round's own full shoe, as after refillDeck
+      nextRound += 1;
+    } else if (shoe.isPastCutCard()) {
+      refillCount = 0; // cards of the old shoe are out of the game
+      refillDeck();
+    }
+
+    if (recorder != null) {
+      if (round > 0)
+        recorder.startRound(round);
+      else
+        recorder.startRound();
+    }
+    if (events != null)
+      events.publishRound();
+
+    // bets are placed before any card of the round is seen
+    double trueCount = shoe.getTrueCount();
+    for (int p = 1; p < players.length; p++) {
+      players[p].placeBet(betPolicy.bet(players[p].getBankroll(), trueCount));
+      if (watched && moneyShown)
+        out.printf(BET_STR, p, moneyToString(players[p].getBet()));
+    }
 
-    System.out.print(DEALING_STR);
+    out.print(DEALING_STR);
 
     // deal each player at the start of the game
     for (int p = 0; p < players.length; p++) {
+      // clear hand from any previous round
+      players[p].reset();
+
       // Add face up card from Player p to the array and add to Player p's hand
-      int faceUpCard = dealCard();
+      int faceUpCard = dealCard(p, 0);
       faceUpCards[p] = faceUpCard;
       players[p].hit(faceUpCard);
 
       // Deal second initial card - the face down card
-      players[p].hit(dealCard());
+      players[p].hit(dealCard(p, 0));
     }
 
     // Player 1 starts, until Player numPlayers. Then dealer's turn.
     activePlayer = 1;
 
-    System.out.print(DONE_DEALING_STR);
+    out.print(DONE_DEALING_STR);
   }
 
   /**
@@ -124,21 +274,33 @@ public class Board
    * @return Number of the dealt card.
    */
   public int dealCard() {
+    if (Metrics.ENABLED)
+      Metrics.CARDS_DEALT.increment();
+
+    if (stream != null)
+      return stream.getCard(streamIndex++);
+
     // if we ran out of cards, first refill the deck
-    if (cardsInDeck == 0)
+    if (shoe.getCardsLeft() == 0)
       refillDeck();
 
-    // Get a random number [1-13]
-    int number = rand.nextInt(NUM_OF_NUMBERS) + 1;
+    return shoe.deal();
+  }
 
-    // Loop to ensure random but also available in deck
-    while (deck[number-1] == 0) {
-      number = rand.nextInt(NUM_OF_NUMBERS) + 1;
-    }
+  /**
+   * Deals a card to a hand of a seat, recording and publishing it if the
+   * board has a recorder or a publisher.
+   * @param seat Seat the card is dealt to, 0 for the dealer
+   * @param hand Index of the seat's hand the card is dealt to
+   * @return Number of the dealt card.
+   */
+  private int dealCard(int seat, int hand) {
+    int number = dealCard();
 
-    // subtract 1 for the card we took out
-    deck[number-1] -= 1;
-    cardsInDeck -= 1;
+    if (recorder != null)
+      recorder.recordCard(seat, hand, number);
+    if (events != null)
+      events.publishCard(seat, hand, number);
 
     return number;
   }
@@ -149,65 +311,538 @@ public class Board
    * @return whether player busted or not.
    */
   public boolean hitPlayer() {
-    // hit player - deal card to player
-    int number = dealCard();
-    System.out.printf(PLAYER_HIT_STR, convertIntToCard(number));
-    players[activePlayer].hit(number);
+    recordAction(Policy.HIT);
+    return dealToActive();
+  }
+
+  /**
+   * Doubles the active player's bet on the active hand and deals exactly one
+   * more card to it, which ends the hand.
+   * @return true, since the hand is over.
+   */
+  public boolean doubleDown() {
+    recordAction(Policy.DOUBLE);
+    players[activePlayer].doubleDown();
+    if (watched)
+      out.println(DOUBLED_STR);
+
+    dealToActive();
+    return true;
+  }
+
+  /**
+   * Splits the active player's pair into two hands and deals a second card to
+   * each. Split aces get only that one card.
+   * @return whether the player's hands are over, as after splitting aces.
+   */
+  public boolean split() {
+    recordAction(Policy.SPLIT);
+    Player player = players[activePlayer];
+    boolean aces = player.getHand().getCard(0) == 1;
+
+    int first = player.getActiveHand();
+    int second = player.split(first);
+    player.hitHand(first, dealCard(activePlayer, first));
+    player.hitHand(second, dealCard(activePlayer, second));
+
+    if (watched)
+      out.printf(SPLIT_STR, player.getNumHands());
+
+    if (aces)
+      player.finishHands();
+
+    return aces;
+  }
+
+  /**
+   * The active player gives up the round for half the bet back.
+   * @return true, since the player's turn is over.
+   */
+  public boolean surrender() {
+    recordAction(Policy.SURRENDER);
+    players[activePlayer].surrender();
+    if (watched)
+      out.println(SURRENDERED_STR);
+
+    return true;
+  }
+
+  /**
+   * The active player takes insurance against the dealer's 21.
+   * @return None.
+   */
+  public void insure() {
+    recordAction(HandRecorder.INSURANCE);
+    players[activePlayer].insure();
+    if (watched)
+      out.println(INSURED_STR);
+  }
+
+  /**
+   * Plays one action for the active player's active hand.
+   * @param action One of Policy's actions, which must be allowed
+   * @return whether the hand is over.
+   */
+  public boolean play(int action) {
+    switch (action) {
+      case Policy.HIT:
+        return hitPlayer();
+      case Policy.DOUBLE:
+        return doubleDown();
+      case Policy.SPLIT:
+        return split();
+      case Policy.SURRENDER:
+        return surrender();
+      default:
+        recordAction(Policy.STAY);
+        return true;
+    }
+  }
+
+  /**
+   * Returns the actions the active player may take on the active hand.
+   * @return Actions allowed, with bit 1 << action set for each
+   */
+  public int getAllowedActions() {
+    Player player = players[activePlayer];
+    if (!optionsAllowed || player.getHand().getSize() != 2)
+      return BASIC_ACTIONS;
+
+    int allowed = BASIC_ACTIONS;
+    if (player.getNumHands() == 1)
+      allowed |= surrenderActions;
+
+    // doubling and splitting put another bet on the table
+    if (player.canCover(player.getBet())) {
+      allowed |= twoCardActions;
+      if (splitAllowed && player.canSplit())
+        allowed |= 1 << Policy.SPLIT;
+    }
+
+    return allowed;
+  }
+
+  /**
+   * Returns whether the active player may take an action now.
+   * @param action One of Policy's actions
+   * @return true if allowed
+   */
+  public boolean isAllowed(int action) {
+    return (getAllowedActions() & 1 << action) != 0;
+  }
+
+  /**
+   * Returns whether the active player may take insurance now: the dealer
+   * shows an ace and the player has not acted yet.
+   * @return true if insurance can be taken
+   */
+  public boolean canInsure() {
+    Player player = players[activePlayer];
+    return insuranceAllowed && faceUpCards[0] == 1 && !player.isInsured()
+        && player.getNumHands() == 1 && player.getHand().getSize() == 2
+        && player.canCover(player.getBet() / 2);
+  }
+
+  /**
+   * Helper method that deals a card to the active player's active hand and
+   * prints it.
+   * @return whether player busted or not.
+   */
+  private boolean dealToActive() {
+    Player player = players[activePlayer];
+    int number = dealCard(activePlayer, player.getActiveHand());
+    player.hit(number);
 
     // check if player busted
-    boolean bust = players[activePlayer].getBusted();
-    if (bust)
-			System.out.println(PLAYER_BUSTED_STR);
+    boolean bust = player.getBusted();
+    if (bust && events != null)
+      events.publishBust(activePlayer, player.getActiveHand()
+          , player.getTotal());
+
+    // skip formatting when nobody watches, since this runs every hit
+    if (watched) {
+      out.printf(PLAYER_HIT_STR, convertIntToCard(number));
+      if (bust)
+        out.println(PLAYER_BUSTED_STR);
+    }
 
     return bust;
   }
 
   /**
-   * Changes the active player to the next player. This occurs when a player
-   * busts or stays.
+   * Changes the active player to the next player, or to the active player's
+   * next hand after a split. This occurs when a hand busts or stays.
    * @return activePlayer - the next player's turn
    */
   public int nextPlayer() {
+    if (players[activePlayer].nextHand())
+      return activePlayer;
+
     return ++activePlayer;
   }
 
+  /**
+   * Plays a whole round without any user interaction. Every player hits
+   * according to the policy, then the dealer plays and the round is resolved.
+   * @param policy Decides whether the active player hits or stays.
+   * @return Results of the round. The object is reused by the next round.
+   */
+  public RoundResult playRound(Policy policy) {
+    long start = Metrics.ENABLED ? System.nanoTime() : 0;
+    setup();
+
+    // each hand plays until the policy stays or the hand is over
+    while (activePlayer < players.length) {
+      Player player = players[activePlayer];
+      if (canInsure() && policy.takesInsurance(player))
+        insure();
+
+      int allowed;
+      int action;
+      do {
+        allowed = getAllowedActions();
+        action = policy.decide(player, faceUpCards[0], allowed);
+      } while ((allowed & 1 << action) != 0 && !play(action));
+
+      if ((allowed & 1 << action) == 0)
+        throw new IllegalStateException(String.format(ERROR_NOT_ALLOWED
+            , action));
+
+      nextPlayer();
+    }
+
+    resolveRound();
+    if (Metrics.ENABLED)
+      Metrics.ROUND_DURATION.record(System.nanoTime() - start);
+
+    return result;
+  }
+
+  /**
+   * Records and publishes what the active player chose to do with the active
+   * hand, if the board has a recorder or a publisher.
+   * @param action One of Policy's actions, or HINT or INSURANCE of
+   *               HandRecorder
+   * @return None.
+   */
+  public void recordAction(int action) {
+    if (recorder != null)
+      recorder.recordAction(activePlayer
+          , players[activePlayer].getActiveHand(), action);
+    if (events != null)
+      events.publishAction(activePlayer
+          , players[activePlayer].getActiveHand(), action);
+  }
+
+  /**
+   * Sets how the players decide their bets from the next round on.
+   * @param betPolicy Policy deciding the bets
+   * @return None.
+   */
+  public void setBetPolicy(BetPolicy betPolicy) {
+    this.betPolicy = betPolicy;
+  }
+
+  /**
+   * Gives every player the same bankroll.
+   * @param bankroll Money of each player, in cents
+   * @return None.
+   */
+  public void setBankrolls(long bankroll) {
+    for (int p = 1; p < players.length; p++) {
+      players[p].setBankroll(bankroll);
+    }
+  }
+
+  /**
+   * Sets whether the bets and the bankrolls are printed every round. They
+   * are not unless set.
+   * @param moneyShown Whether to print the bets and the bankrolls
+   * @return None.
+   */
+  public void setMoneyShown(boolean moneyShown) {
+    this.moneyShown = moneyShown;
+  }
+
+  /**
+   * Sets the dealer odds and the advisor the hints use, so boards with the
+   * same rules can share them and their caches instead of each creating its
+   * own on the first hint. Both are safe to use from many threads.
+   * @param dealerOdds Calculates the dealer's odds under the board's rules
+   * @param advisor Advisor that uses dealerOdds
+   * @return None.
+   */
+  public void setAdvice(DealerOdds dealerOdds, Advisor advisor) {
+    this.dealerOdds = dealerOdds;
+    this.advisor = advisor;
+  }
+
+  /**
+   * Sets the recorder that records every round from now on.
+   * @param recorder Recorder of the rounds, or null to stop recording
+   * @return None.
+   */
+  public void setRecorder(HandRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Deals every round from now on from a full shoe in its original order,
+   * with a generator jumped to the round's own split of the key. The cards
+   * of a round then only depend on the key and the number of the round, so
+   * any round can be dealt on its own without the rounds before it, at the
+   * cost of never playing deeper into a shoe.
+   * @param key Seed the generators of the rounds are split from
+   * @param firstRound Number of the next round, from 1
+   * @return None.
+   */
+  public void setCounterRounds(long key, long firstRound) {
+    counterKey = key;
+    nextRound = firstRound;
+  }
+
+  /**
+   * Sets the publisher that publishes the events of every round from now on.
+   * @param events Publisher of the events, or null to stop publishing
+   * @return None.
+   */
+  public void setEvents(GameEventPublisher events) {
+    this.events = events;
+  }
+
+  /**
+   * Deals every round from now on from a stream shared with other boards
+   * instead of the board's own shoe. The n-th card of a round is then the
+   * same at every board of the stream, whatever the players chose, so
+   * boards playing different policies see the same rounds. The stream has
+   * to be started before each round; betting on the count sees the board's
+   * own shoe, not the stream.
+   * @param stream Stream of the cards, or null to deal from the shoe again
+   * @return None.
+   */
+  public void setCardStream(CardStream stream) {
+    this.stream = stream;
+  }
+
+  /**
+   * Returns the number of bytes saveState writes.
+   * @return Size of the state
+   */
+  public int getStateSize() {
+    int stateSize = 3 * Integer.BYTES + faceUpCards.length * Integer.BYTES
+        + shoe.getStateSize();
+    for (int p = 0; p < players.length; p++) {
+      stateSize += players[p].getStateSize();
+    }
+
+    return stateSize;
+  }
+
+  /**
+   * Writes the state of the board: the shoe, the players and whose turn it
+   * is. It should be called between rounds, so nothing changes while it is
+   * written.
+   * @param buffer Buffer to write to, with getStateSize bytes left
+   * @return None.
+   */
+  public void saveState(ByteBuffer buffer) {
+    buffer.putInt(players.length - 1).putInt(activePlayer).putInt(refillCount);
+    for (int p = 0; p < faceUpCards.length; p++) {
+      buffer.putInt(faceUpCards[p]);
+    }
+
+    shoe.saveState(buffer);
+    for (int p = 0; p < players.length; p++) {
+      players[p].saveState(buffer);
+    }
+  }
+
+  /**
+   * Reads a state written by saveState of a board with the same rules and
+   * number of players, replacing the current one.
+   * @param buffer Buffer to read from
+   * @return None.
+   * @throws IllegalArgumentException If the state is of another board or not
+   *                                  valid
+   */
+  public void restoreState(ByteBuffer buffer) {
+    int numPlayers = buffer.getInt();
+    if (numPlayers != players.length - 1)
+      throw new IllegalArgumentException(String.format(ERROR_OTHER_BOARD
+          , numPlayers, players.length - 1));
+
+    activePlayer = buffer.getInt();
+    refillCount = buffer.getInt();
+    for (int p = 0; p < faceUpCards.length; p++) {
+      faceUpCards[p] = buffer.getInt();
+    }
+
+    shoe.restoreState(buffer);
+    for (int p = 0; p < players.length; p++) {
+      players[p].restoreState(buffer);
+    }
+  }
+
   /**
    * Actions done at end of game. Dealer deals himself according to rules and
    * determines the results of the game/each player.
    * @return None.
    */
   public void gameEnd() {
+    resolveRound();
+
+    out.println(); // extra new line
+    out.flush();
+    if (recorder != null)
+      recorder.close();
+    System.exit(0); // end game/program
+  }
+
+  /**
+   * Dealer deals himself according to rules and determines the result of each
+   * player. Prints the results to the board's output.
+   * @return Results of the round. The object is reused by the next round.
+   */
+  public RoundResult resolveRound() {
+    // the dealer does not peek, so a blackjack only shows now: a surrender
+    // still gets half back and doubled and split hands lose every bet
+    Player dealer = players[0];
+    boolean dealerBlackjack = dealer.getHand().getSize() == 2
+        && dealer.getTotal() == Player.BUST_NUM;
+    result.setDealerBlackjack(dealerBlackjack);
+
     // Rules of blackjack dealer
-    // Dealer must hit if his sum is less than 17
-    while (players[0].getTotal() < DEALER_MINIMUM) {
-      players[0].hit(dealCard());
+    // Dealer must hit if his sum is less than 17, or a soft 17 if the rules
+    // say so
+    while (dealer.getTotal() < DEALER_MINIMUM || (dealer.getTotal()
+        < dealerSoftStand && dealer.getAceAsElevenCount() > 0)) {
+      dealer.hit(dealCard(0, 0));
     }
-		
+
     // Print result of dealer
     int dealerSum = players[0].getTotal();
-    System.out.printf(DEALER_TOTAL_STR, dealerSum);
+    result.setDealerTotal(dealerSum);
+    result.setDealerUpCard(faceUpCards[0]);
+    if (watched)
+      out.printf(DEALER_TOTAL_STR, dealerSum);
+    if (recorder != null)
+      recorder.recordResult(0, 0, dealerSum, HandRecorder.NO_OUTCOME);
+    if (events != null) {
+      if (dealer.getBusted())
+        events.publishBust(0, 0, dealerSum);
+      events.publishResult(0, 0, dealerSum, GameEvent.NO_OUTCOME);
+    }
+    if (Metrics.ENABLED)
+      Metrics.HANDS.increment();
 
-    // Print out results of each player
+    // Determine results of each hand of each player
+    boolean dealerBusted = players[0].getBusted();
     for (int p = 1; p < players.length; p++) {
-      int playerSum = players[p].getTotal();
-
-      System.out.printf(PLAYER_STR, p, playerSum);
-
-      if (players[p].getBusted()) // players loses if bust
-        System.out.println(LOSES_BUST_STR);
-      else if (players[0].getBusted()) // player wins if no bust but dealer did
-        System.out.println(WINS_BUST_STR);
-      else if (playerSum > dealerSum) // player sum > dealer sum
-        System.out.println(WINS_STR);
-      else if (playerSum == dealerSum) // player ties with dealer
-        System.out.println(TIES_STR);
-      else // dealer sum > player sum
-        System.out.println(LOSES_STR);
+      Player player = players[p];
+      int numHands = player.getNumHands();
+      long bet = player.getBet();
+      long wagered = 0; // money put on the table, in cents
+      long won = 0; // money won, in cents
+      result.setPlayer(p, numHands, player.isInsured());
+      if (Metrics.ENABLED)
+        Metrics.HANDS.add(numHands);
+
+      // insurance is half the bet and pays 2 to 1
+      if (player.isInsured()) {
+        wagered += bet / 2;
+        won += dealerBlackjack ? 2 * (bet / 2) : -(bet / 2);
+        if (watched)
+          out.printf(dealerBlackjack ? INSURANCE_WINS_STR
+              : INSURANCE_LOSES_STR, p);
+      }
+
+      for (int h = 0; h < numHands; h++) {
+        Hand hand = player.getHand(h);
+        int playerSum = hand.getTotal();
+        int outcome;
+
+        if (player.isSurrendered()) // player gave up the round
+          outcome = RoundResult.SURRENDERS;
+        else if (numHands == 1 && hand.getSize() == 2
+            && playerSum == Player.BUST_NUM) // blackjack beats any other 21
+          outcome = dealerBlackjack ? RoundResult.TIES : RoundResult.BLACKJACK;
+        else if (dealerBlackjack && playerSum == Player.BUST_NUM)
+          outcome = RoundResult.LOSES; // 21 of more cards loses to blackjack
+        else
+          outcome = outcomeOf(playerSum, dealerSum, dealerBusted);
+
+        long stake = hand.isDoubled() ? 2 * bet : bet;
+        wagered += stake;
+        won += RoundResult.payout(outcome, stake);
+
+        result.setHand(p, h, playerSum, outcome, hand.isDoubled());
+        if (recorder != null)
+          recorder.recordResult(p, h, playerSum, outcome);
+        if (events != null)
+          events.publishResult(p, h, playerSum, outcome);
+
+        if (watched) {
+          out.printf(PLAYER_STR, p, playerSum);
+          out.println(outcomeToString(outcome));
+        }
+      }
+
+      player.settle(won);
+      result.setMoney(p, wagered, won, player.getBankroll());
+      if (watched && moneyShown)
+        out.printf(BANKROLL_STR, p, moneyToString(player.getBankroll())
+            , won > 0 ? PLUS_STR : NO_SIGN_STR, moneyToString(won));
     }
 
-    System.out.println(); // extra new line
-    System.exit(0); // end game/program
-	}
+    return result;
+  }
+
+  /**
+   * Helper method that compares a hand that was played out to the dealer's.
+   * @param playerSum Total of the hand
+   * @param dealerSum Total of the dealer
+   * @param dealerBusted Whether the dealer busted
+   * @return One of RoundResult's outcomes besides SURRENDERS and BLACKJACK
+   */
+  private static int outcomeOf(int playerSum, int dealerSum
+      , boolean dealerBusted) {
+    if (playerSum > Player.BUST_NUM) // players loses if bust
+      return RoundResult.LOSES_BUST;
+    else if (dealerBusted) // player wins if dealer busted
+      return RoundResult.WINS_BUST;
+    else if (playerSum > dealerSum) // player sum > dealer sum
+      return RoundResult.WINS;
+    else if (playerSum == dealerSum) // player ties with dealer
+      return RoundResult.TIES;
+    else // dealer sum > player sum
+      return RoundResult.LOSES;
+  }
+
+  /**
+   * Returns the Hi-Lo running count of the cards dealt from the shoe since it
+   * was last refilled.
+   * @return Running count
+   */
+  public int getRunningCount() {
+    return shoe.getRunningCount();
+  }
+
+  /**
+   * Returns the Hi-Lo true count: the running count per deck left.
+   * @return True count
+   */
+  public double getTrueCount() {
+    return shoe.getTrueCount();
+  }
+
+  /**
+   * Returns how many cards of a number are left in the shoe.
+   * @param number Card number 1-13
+   * @return Count of the card number left
+   */
+  public int getCardsLeft(int number) {
+    return shoe.getCount(number);
+  }
 
   /**
    * Prints dealer and all players' visible card.
@@ -220,13 +855,13 @@ public class Board
 
       // dealer
       if (p == 0)
-        System.out.printf(DEALER_CARD_STR, faceUpCard);
+        out.printf(DEALER_CARD_STR, faceUpCard);
       else // players
-        System.out.printf(OTHERS_CARD_STR, p, faceUpCard);
+        out.printf(OTHERS_CARD_STR, p, faceUpCard);
     }
 		
     // extra new line
-    System.out.println();	
+    out.println();	
   }
 
   /**
@@ -234,8 +869,8 @@ public class Board
    * @return None.
    */
   public void printActivePlayer() {
-    System.out.printf(PLAYER_TURN_STR, activePlayer);
-    System.out.println(CONFIRM_PLAYER_STR);
+    out.printf(PLAYER_TURN_STR, activePlayer);
+    out.println(CONFIRM_PLAYER_STR);
   }
 	
   /**
@@ -244,24 +879,51 @@ public class Board
    */
   public void printActiveHand() {
     // Get hand from the player
-    ArrayList<Integer> hand = players[activePlayer].getHand();
+    Player player = players[activePlayer];
+    Hand hand = player.getHand();
 
     // Print initial statement
-    System.out.print(PLAYER_HAND_STR);
+    if (player.getNumHands() > 1)
+      out.printf(PLAYER_HANDS_STR, player.getActiveHand() + 1
+          , player.getNumHands());
+    else
+      out.print(PLAYER_HAND_STR);
 
     // loop through hand and print the cards
-    for (int i = 0; i < hand.size(); i++) {
-      String card = convertIntToCard(hand.get(i));
-      System.out.print(card);
+    for (int i = 0; i < hand.getSize(); i++) {
+      String card = convertIntToCard(hand.getCard(i));
+      out.print(card);
 
       // print "." instead of ", " after last card
-      if (i == hand.size() - 1)
-        System.out.println(PERIOD_STR);
+      if (i == hand.getSize() - 1)
+        out.println(PERIOD_STR);
       else
-        System.out.print(COMMA_STR);
+        out.print(COMMA_STR);
     }
   }
 
+  /**
+   * Prints the actions besides hit, stay and hint that the active player may
+   * take now, if there are any.
+   * @return None.
+   */
+  public void printActiveActions() {
+    int allowed = getAllowedActions() & ~BASIC_ACTIONS;
+    int numActions = Integer.bitCount(allowed) + (canInsure() ? 1 : 0);
+    if (numActions == 0)
+      return;
+
+    StringBuilder actions = new StringBuilder();
+    for (int a = 0; a < Policy.NUM_OF_ACTIONS; a++) {
+      if ((allowed & 1 << a) != 0)
+        appendAction(actions, ACTION_STRS[a], --numActions);
+    }
+    if (canInsure())
+      appendAction(actions, INSURANCE_ACTION_STR, --numActions);
+
+    out.printf(ACTIONS_STR, actions);
+  }
+
   /**
    * Prints active player's total.
    * @return None.
@@ -271,39 +933,44 @@ public class Board
     int aceAsOne = players[activePlayer].getAceAsOneCount();
 
     // Print beginning of string
-    System.out.printf(PLAYER_TOTAL_STR, players[activePlayer].getTotal());
+    out.printf(PLAYER_TOTAL_STR, players[activePlayer].getTotal());
 
     // Print aces strings if player has aces
     if (aceAsEleven > 0) {
-      System.out.printf(PLAYER_ACE_STR, aceAsEleven);
-      System.out.print(PLAYER_ACE_ELEVEN_STR);
+      out.printf(PLAYER_ACE_STR, aceAsEleven);
+      out.print(PLAYER_ACE_ELEVEN_STR);
     }
 
     if (aceAsEleven > 0 && aceAsOne > 0)
-      System.out.print(PLAYER_TOTAL_AND_STR);
+      out.print(PLAYER_TOTAL_AND_STR);
     
     if(aceAsOne > 0)
     {
-      System.out.printf(PLAYER_ACE_STR, aceAsOne);
-      System.out.print(PLAYER_ACE_ONE_STR);
+      out.printf(PLAYER_ACE_STR, aceAsOne);
+      out.print(PLAYER_ACE_ONE_STR);
     }
 
-    System.out.println(PERIOD_STR);
+    out.println(PERIOD_STR);
   }
 
   /**
-   * Prints active player's probability of busting when he wants help.
+   * Prints active player's probability of busting when he wants help, the
+   * chances of each final total of the dealer, and whether hitting or staying
+   * has the better expected value based on what he knows.
    * @return None.
    */
   public void printActiveHint() {
-    // create the deck for hint containing all decks used in the game so far
-    int[] deckForHint = new int[NUM_OF_NUMBERS];
+    long start = Metrics.ENABLED ? System.nanoTime() : 0;
+
+    // create the deck for hint containing all shoes used since the shuffle
+    int[] deckForHint = new int[Shoe.NUM_OF_NUMBERS];
+    int cardsPerNumber = Shoe.NUM_OF_SUITS * shoe.getNumDecks() * refillCount;
     // total number of cards in the game so far - number of visible cards
-    int numCardsForHint = NUM_OF_SUITS * NUM_OF_NUMBERS * refillCount -
+    int numCardsForHint = cardsPerNumber * Shoe.NUM_OF_NUMBERS -
       faceUpCards.length;
 
     for (int i = 0; i < deckForHint.length; i++) {
-      deckForHint[i] = NUM_OF_SUITS * refillCount;
+      deckForHint[i] = cardsPerNumber;
     }
 
     // subtract each player's visible card from the deckForHint
@@ -312,24 +979,96 @@ public class Board
       deckForHint[card - 1] -= 1; // -1 in index because 1 is at index 0 in deck
     }
 		
-    System.out.printf(PLAYER_HINT_STR, 
+    // getHint also takes the player's own cards out of deckForHint
+    out.printf(PLAYER_HINT_STR, 
         players[activePlayer].getHint(deckForHint, numCardsForHint));
+
+    if (advisor == null) {
+      dealerOdds = new DealerOdds(DEALER_ODDS_CACHE_SIZE, hitSoft17);
+      advisor = new Advisor(dealerOdds, ADVISOR_CACHE_SIZE);
+    }
+
+    double[] odds = new double[DealerOdds.NUM_OF_TOTALS];
+    dealerOdds.getOdds(faceUpCards[0], deckForHint, odds);
+    out.printf(DEALER_ODDS_STR, odds[0] * 100, odds[1] * 100
+        , odds[2] * 100, odds[3] * 100, odds[4] * 100
+        , odds[DealerOdds.BUST] * 100);
+
+    Player player = players[activePlayer];
+    double[] values = new double[2];
+    advisor.advise(player.getTotal(), player.getAceAsElevenCount() > 0
+        , faceUpCards[0], deckForHint, values);
+    out.printf(ADVICE_STR, values[Advisor.HIT], values[Advisor.STAY]
+        , values[Advisor.HIT] > values[Advisor.STAY] ? ADVICE_HIT_STR
+        : ADVICE_STAY_STR);
+
+    if (Metrics.ENABLED)
+      Metrics.HINT_LATENCY.record(System.nanoTime() - start);
   }
 
   /**
-   * Helper method that refills the deck so the deck has 4 cards
-   * for each of the 13 numbers.
+   * Helper method that refills the shoe so it has 4 cards for each of the 13
+   * numbers in every deck.
    * @return None.
    */
   private void refillDeck() {
-    // loop through deck and refill so each number has 4 cards.
-    for (int i = 0; i < deck.length; i++) {
-      deck[i] = NUM_OF_SUITS;
-    }
+    shoe.refill();
 
     // set variables accordingly
-    cardsInDeck = NUM_OF_NUMBERS * NUM_OF_SUITS;
     refillCount += 1;
+    if (Metrics.ENABLED)
+      Metrics.RESHUFFLES.increment();
+  }
+
+  /**
+   * Converts a player's outcome to the string printed.
+   * @param outcome The outcome of the player, one of RoundResult's outcomes
+   * @return The string describing the outcome
+   */
+  static String outcomeToString(int outcome) {
+    switch (outcome) {
+      case RoundResult.WINS:
+        return WINS_STR;
+      case RoundResult.WINS_BUST:
+        return WINS_BUST_STR;
+      case RoundResult.LOSES_BUST:
+        return LOSES_BUST_STR;
+      case RoundResult.TIES:
+        return TIES_STR;
+      case RoundResult.SURRENDERS:
+        return SURRENDERS_STR;
+      case RoundResult.BLACKJACK:
+        return BLACKJACK_STR;
+      default:
+        return LOSES_STR;
+    }
+  }
+
+  /**
+   * Converts an amount of money to the string printed, such as $1,012.50.
+   * @param cents The amount in cents
+   * @return The string of the amount
+   */
+  static String moneyToString(long cents) {
+    long amount = Math.abs(cents);
+    return String.format(MONEY_STR, cents < 0 ? MINUS_STR : NO_SIGN_STR
+        , amount / 100, amount % 100);
+  }
+
+  /**
+   * Helper method that appends an action to a list of actions, separated by
+   * commas and " or " before the last one.
+   * @param actions The list to append to
+   * @param action The action to append
+   * @param numLeft Number of actions still to append after this one
+   * @return None.
+   */
+  private static void appendAction(StringBuilder actions, String action
+      , int numLeft) {
+    if (actions.length() > 0)
+      actions.append(numLeft == 0 ? ACTIONS_OR_STR : COMMA_STR);
+
+    actions.append(action);
   }
 
   /**
@@ -338,26 +1077,7 @@ public class Board
    * @return The string representing the card
    */
   private String convertIntToCard(int card) {
-    String faceUpCard = "";
-
     // convert the integer stored into cards (A,2-10,J,Q,K)
-    switch (card) {
-      case 1:
-        faceUpCard = "A"; 
-        break; 
-      case 11:
-        faceUpCard = "J";
-        break;
-      case 12:
-        faceUpCard = "Q";
-        break;
-      case 13:
-        faceUpCard = "K";
-        break;
-      default: // 2-10
-        faceUpCard += card;
-    }
-
-    return faceUpCard;
+    return CARD_STRS[card];
   }
 }
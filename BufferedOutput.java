@@ -0,0 +1,55 @@
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * BufferedOutput collects everything written in a buffer and only writes it
+ * to the stream when flushed, so a whole screen is sent at once instead of in
+ * many small writes.
+ *
+ * @author Aimee Shao
+ */
+public class BufferedOutput implements Output {
+
+  // Size of the buffer; larger than anything printed between prompts
+  private static final int BUFFER_SIZE = 1 << 14;
+
+  private PrintStream stream; // stream written to, flushed only when asked
+
+  /**
+   * Constructor for output to a stream, such as System.out.
+   * @param out Stream to write to
+   */
+  BufferedOutput(OutputStream out) {
+    this(out, BUFFER_SIZE);
+  }
+
+  /**
+   * Constructor for output to a stream with a buffer of the given size.
+   * @param out Stream to write to
+   * @param bufferSize Size of the buffer in bytes
+   */
+  BufferedOutput(OutputStream out, int bufferSize) {
+    stream = new PrintStream(new BufferedOutputStream(out, bufferSize), false);
+  }
+
+  public void print(String str) {
+    stream.print(str);
+  }
+
+  public void printf(String format, Object... args) {
+    stream.printf(format, args);
+  }
+
+  public void println(String str) {
+    stream.println(str);
+  }
+
+  public void println() {
+    stream.println();
+  }
+
+  public void flush() {
+    stream.flush();
+  }
+}
@@ -0,0 +1,208 @@
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+/**
+ * CardRandom is the random generator cards are dealt with. It is the SplitMix
+ * generator of java.util.SplittableRandom, giving the same numbers for the
+ * same seed, except that its whole state is two longs that can be saved and
+ * restored, so a game can continue from a checkpoint exactly as it would have
+ * without stopping.
+ *
+ * @author Aimee Shao
+ */
+public class CardRandom {
+
+  // Size of the saved state
+  static final int STATE_SIZE = 2 * Long.BYTES;
+
+  // Gamma of a generator created from a seed
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private long seed; // state, advanced by gamma for every number
+  private long gamma; // odd step added to the seed
+
+  /**
+   * Default constructor for a generator with a random seed.
+   */
+  CardRandom() {
+    this(new SplittableRandom().nextLong());
+  }
+
+  /**
+   * Constructor for a generator of the numbers SplittableRandom gives for the
+   * same seed.
+   * @param seed Seed of the generator
+   */
+  CardRandom(long seed) {
+    this(seed, GOLDEN_GAMMA);
+  }
+
+  /**
+   * Constructor for a generator with the given state.
+   * @param seed Seed of the generator
+   * @param gamma Step of the generator, must be odd
+   */
+  private CardRandom(long seed, long gamma) {
+    this.seed = seed;
+    this.gamma = gamma;
+  }
+
+  /**
+   * Returns a random long.
+   * @return The number
+   */
+  public long nextLong() {
+    return mix64(nextSeed());
+  }
+
+  /**
+   * Returns a random int from 0 up to the bound, without bias.
+   * @param bound Upper bound, exclusive, must be positive
+   * @return The number
+   */
+  public int nextInt(int bound) {
+    int r = mix32(nextSeed());
+    int m = bound - 1;
+
+    if ((bound & m) == 0) // power of two
+      return r & m;
+
+    // reject the top values that would make the low numbers more likely
+    for (int u = r >>> 1; u + m - (r = u % bound) < 0; ) {
+      u = mix32(nextSeed()) >>> 1;
+    }
+    return r;
+  }
+
+  /**
+   * Returns a random int from 0 up to the bound from one of several
+   * generators whose states are kept in arrays, giving the same number as
+   * nextInt of that generator would.
+   * @param seeds Seed of each generator, advanced by this call
+   * @param gammas Step of each generator
+   * @param g Index of the generator
+   * @param bound Upper bound, exclusive, must be positive
+   * @return The number
+   */
+  static int nextInt(long[] seeds, long[] gammas, int g, int bound) {
+    long z = seeds[g] + gammas[g];
+    int r = mix32(z);
+    int m = bound - 1;
+
+    if ((bound & m) == 0) {
+      r &= m;
+    } else {
+      for (int u = r >>> 1; u + m - (r = u % bound) < 0; ) {
+        z += gammas[g];
+        u = mix32(z) >>> 1;
+      }
+    }
+
+    seeds[g] = z;
+    return r;
+  }
+
+  /**
+   * Copies the state of the generator into arrays of states.
+   * @param seeds Seed of each generator
+   * @param gammas Step of each generator
+   * @param g Index to copy the state to
+   * @return None.
+   */
+  void copyState(long[] seeds, long[] gammas, int g) {
+    seeds[g] = seed;
+    gammas[g] = gamma;
+  }
+
+  /**
+   * Returns a new generator that shares no state with this one, like
+   * SplittableRandom.split does.
+   * @return The new generator
+   */
+  public CardRandom split() {
+    return new CardRandom(nextLong(), mixGamma(nextSeed()));
+  }
+
+  /**
+   * Sets the generator to the one the given split of a generator with the
+   * key would return, without making the splits before it, so a counter of
+   * rounds or shards can jump straight to its own generator.
+   * @param key Seed of the generator the splits are made from
+   * @param index Number of splits made before, from 0
+   * @return None.
+   */
+  public void jumpToSplit(long key, long index) {
+    // split advances the seed twice: once for the seed, once for the gamma
+    long base = key + 2 * index * GOLDEN_GAMMA;
+    seed = mix64(base + GOLDEN_GAMMA);
+    gamma = mixGamma(base + 2 * GOLDEN_GAMMA);
+  }
+
+  /**
+   * Writes the state of the generator.
+   * @param buffer Buffer to write to, with STATE_SIZE bytes left
+   * @return None.
+   */
+  public void saveState(ByteBuffer buffer) {
+    buffer.putLong(seed).putLong(gamma);
+  }
+
+  /**
+   * Reads a state written by saveState, replacing the current one.
+   * @param buffer Buffer to read from
+   * @return None.
+   * @throws IllegalArgumentException If the state is not valid
+   */
+  public void restoreState(ByteBuffer buffer) {
+    long newSeed = buffer.getLong();
+    long newGamma = buffer.getLong();
+    if ((newGamma & 1) == 0)
+      throw new IllegalArgumentException("gamma must be odd");
+
+    seed = newSeed;
+    gamma = newGamma;
+  }
+
+  /**
+   * Helper method that advances the seed.
+   * @return The new seed
+   */
+  private long nextSeed() {
+    return seed += gamma;
+  }
+
+  /**
+   * Helper method that mixes the bits of a seed into a long.
+   * @param z The seed
+   * @return The mixed bits
+   */
+  private static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Helper method that mixes the bits of a seed into an int.
+   * @param z The seed
+   * @return The mixed bits
+   */
+  private static int mix32(long z) {
+    z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+    return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+  }
+
+  /**
+   * Helper method that mixes the bits of a seed into the gamma of a split
+   * generator, which is odd and has enough bit changes to look random.
+   * @param z The seed
+   * @return The gamma
+   */
+  private static long mixGamma(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    int n = Long.bitCount(z ^ (z >>> 1));
+    return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ * CardStream deals the cards of every round once, so several boards can play
+ * the same round from the same cards in the same order. Each board reads the
+ * cards of the round by their index, and the stream deals a card from its
+ * shoe the first time any board asks for it. The shoe is reshuffled between
+ * rounds once the cut card came out and refilled when it runs out, as at a
+ * board, so a single board reading the stream gets exactly the cards it
+ * would have dealt itself from the same generator.
+ *
+ * @author Aimee Shao
+ */
+public class CardStream {
+
+  // Cards buffered at first; more than almost any round needs
+  private static final int INITIAL_CAPACITY = 64;
+
+  private Shoe shoe; // the cards that have not been dealt
+  private int[] cards; // cards of the round dealt so far, in order
+  private int numDealt = 0; // number of cards of the round dealt so far
+
+  /**
+   * Constructor for the stream.
+   * @param rules Rules of the table, such as the number of decks
+   * @param rand Random generator used in dealing cards
+   */
+  CardStream(Rules rules, CardRandom rand) {
+    shoe = new Shoe(rules.getNumDecks(), rules.getPenetration(), rand);
+    cards = new int[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Starts a round, reshuffling first if the cut card came out.
+   * @return None.
+   */
+  public void startRound() {
+    if (shoe.isPastCutCard())
+      shoe.refill();
+
+    numDealt = 0;
+  }
+
+  /**
+   * Returns a card of the round, dealing it and the cards before it if no
+   * board asked for them yet.
+   * @param index Index of the card in the round, from 0
+   * @return Number 1-13 of the card
+   */
+  public int getCard(int index) {
+    while (numDealt <= index) {
+      if (numDealt == cards.length) {
+        int[] larger = new int[2 * cards.length];
+        System.arraycopy(cards, 0, larger, 0, numDealt);
+        cards = larger;
+      }
+
+      if (shoe.getCardsLeft() == 0)
+        shoe.refill();
+      cards[numDealt++] = shoe.deal();
+    }
+
+    return cards[index];
+  }
+}
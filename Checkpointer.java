@@ -0,0 +1,211 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checkpointer saves the state of a board to a file, so a long game can be
+ * restored after a restart and continue with the same cards. The results of a
+ * simulation's rounds so far are saved with it, so its report still covers
+ * every round after a restart. Saving only copies the board's state into a
+ * buffer, which takes about a microsecond, and a background thread writes the
+ * buffer to the file while the game goes on. If the previous checkpoint is
+ * still being written, the new one is skipped instead of waiting for it. Each
+ * checkpoint is written to a temporary file first and then moved over the old
+ * one, so a crash while writing leaves the last complete checkpoint in place.
+ *
+ * File format: a header word of the magic number and the format version, the
+ * number of rounds played, the size of the state, and the state: the one
+ * written by Board.saveState followed by the one written by
+ * SimulationResult.saveState.
+ *
+ * @author Aimee Shao
+ */
+public class Checkpointer implements Closeable {
+
+  // Header of the file
+  static final int MAGIC = 0x424A4350; // "BJCP"
+  static final short VERSION = 2;
+  private static final int HEADER_SIZE = 2 * Long.BYTES + Integer.BYTES;
+
+  // Suffix of the file a checkpoint is written to before it is moved
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  // Name of the thread writing the checkpoints
+  private static final String THREAD_NAME = "checkpointer";
+
+  // Errors when restoring
+  private static final String ERROR_NOT_CHECKPOINT = "%s is not a checkpoint";
+  private static final String ERROR_OTHER_GAME = "%s is of another game: %s";
+
+  private Path file; // file the checkpoints are saved to
+  private Path tempFile; // file each checkpoint is written to first
+  private ExecutorService writer; // thread writing the checkpoints
+  private ByteBuffer spare; // buffer the next checkpoint is copied into
+  private ByteBuffer writing; // buffer of the checkpoint being written
+  private Future<?> written = null; // write of the last checkpoint, if any
+
+  /**
+   * Constructor for the checkpointer.
+   * @param file File to save the checkpoints to, replaced by every checkpoint
+   */
+  Checkpointer(Path file) {
+    this.file = file;
+    tempFile = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+    writer = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, THREAD_NAME);
+      thread.setDaemon(true);
+      return thread;
+    });
+    spare = ByteBuffer.allocate(0);
+    writing = ByteBuffer.allocate(0);
+  }
+
+  /**
+   * Saves the state of a board and the results of its rounds between rounds.
+   * The state is copied right away and written to the file in the background.
+   * @param board Board to save, which may keep playing once this returns
+   * @param result Results of the rounds played on the board
+   * @param numRounds Number of rounds played on the board
+   * @return false if the checkpoint was skipped because the previous one is
+   *         still being written
+   * @throws UncheckedIOException If writing the previous checkpoint failed
+   */
+  public boolean save(Board board, SimulationResult result, long numRounds) {
+    if (written != null) {
+      if (!written.isDone())
+        return false;
+
+      finishWrite();
+    }
+
+    int size = HEADER_SIZE + board.getStateSize() + result.getStateSize();
+    if (spare.capacity() < size)
+      spare = ByteBuffer.allocate(size);
+
+    spare.clear();
+    spare.putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+        .putLong(numRounds).putInt(size - HEADER_SIZE);
+    board.saveState(spare);
+    result.saveState(spare);
+    spare.flip();
+
+    // the writer gets this buffer, and the next checkpoint is copied into the
+    // other one
+    ByteBuffer toWrite = spare;
+    spare = writing;
+    writing = toWrite;
+    written = writer.submit(() -> {
+      write(toWrite);
+      return null;
+    });
+
+    return true;
+  }
+
+  /**
+   * Waits for the checkpoint being written, if any.
+   * @return None.
+   * @throws UncheckedIOException If writing it failed
+   */
+  public void flush() {
+    if (written != null)
+      finishWrite();
+  }
+
+  /**
+   * Waits for the last checkpoint to be written and stops the writer thread.
+   * @return None.
+   * @throws UncheckedIOException If writing the last checkpoint failed
+   */
+  public void close() {
+    writer.shutdown();
+    flush();
+  }
+
+  /**
+   * Restores the state of a board and the results of its rounds from a
+   * checkpoint.
+   * @param file File the checkpoint was saved to
+   * @param board Board with the same rules and number of players as the
+   *              saved one
+   * @param result Results to replace with the saved ones, of the same number
+   *               of players
+   * @return Number of rounds played on the board when it was saved
+   * @throws IOException If the file cannot be read, is not a checkpoint or is
+   *                     of another game
+   */
+  public static long restore(Path file, Board board, SimulationResult result)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+
+    if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC
+        || buffer.getShort() != VERSION)
+      throw new IOException(String.format(ERROR_NOT_CHECKPOINT, file));
+
+    buffer.getShort(); // reserved
+    long numRounds = buffer.getLong();
+    if (buffer.getInt() != buffer.remaining())
+      throw new IOException(String.format(ERROR_NOT_CHECKPOINT, file));
+
+    try {
+      board.restoreState(buffer);
+      result.restoreState(buffer);
+    } catch (IllegalArgumentException | BufferUnderflowException e) {
+      throw new IOException(String.format(ERROR_OTHER_GAME, file
+          , e.getMessage()), e);
+    }
+
+    return numRounds;
+  }
+
+  /**
+   * Helper method that waits for the last checkpoint to be written.
+   * @return None.
+   * @throws UncheckedIOException If writing it failed
+   */
+  private void finishWrite() {
+    try {
+      written.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+        throw new UncheckedIOException((IOException) e.getCause());
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      written = null;
+    }
+  }
+
+  /**
+   * Helper method that writes a checkpoint to the temporary file and moves it
+   * over the file. Runs on the writer thread.
+   * @param buffer Checkpoint to write
+   * @return None.
+   * @throws IOException If the file cannot be written
+   */
+  private void write(ByteBuffer buffer) throws IOException {
+    try (FileChannel channel = FileChannel.open(tempFile
+        , StandardOpenOption.CREATE, StandardOpenOption.WRITE
+        , StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+
+    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING
+        , StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ * CompositionKey is a cache key for the cards left in a shoe. It packs the
+ * count of each card value 1-10 and a small amount of extra state, such as a
+ * face up card or a total, into two longs.
+ *
+ * @author Aimee Shao
+ */
+public final class CompositionKey {
+
+  // Card values: 1 (ace) to 9, then 10 for 10,J,Q,K
+  public static final int NUM_OF_VALUES = 10;
+
+  // Bits used for each count; larger counts are capped
+  private static final int COUNT_BITS = 10;
+  static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+
+  // Bits left over for the extra state
+  public static final int EXTRA_BITS = 64 - COUNT_BITS * NUM_OF_VALUES / 2;
+
+  private long low; // counts of values 1-5
+  private long high; // counts of values 6-10 and the extra state
+
+  /**
+   * Constructor for the key.
+   * @param extra Extra state, less than 2 to the EXTRA_BITS
+   * @param counts Count of each value 1-10
+   */
+  CompositionKey(int extra, int[] counts) {
+    for (int v = 0; v < NUM_OF_VALUES / 2; v++) {
+      low = low << COUNT_BITS | Math.min(counts[v], MAX_COUNT);
+      high = high << COUNT_BITS
+          | Math.min(counts[v + NUM_OF_VALUES / 2], MAX_COUNT);
+    }
+    high = high << EXTRA_BITS | extra;
+  }
+
+  /**
+   * Collapses the count of each card number 1-13 into counts of each value,
+   * counting 10,J,Q,K as 10.
+   * @param deck Count of each card number 1-13
+   * @param counts Array of NUM_OF_VALUES that the counts are written into
+   * @return Number of cards in the deck
+   */
+  public static int collapse(int[] deck, int[] counts) {
+    int cards = 0;
+
+    for (int v = 0; v < NUM_OF_VALUES; v++) {
+      counts[v] = deck[v];
+      cards += deck[v];
+    }
+    for (int i = NUM_OF_VALUES; i < deck.length; i++) {
+      counts[NUM_OF_VALUES - 1] += deck[i];
+      cards += deck[i];
+    }
+
+    return cards;
+  }
+
+  /**
+   * Converts a card number to its value, with 1 for aces.
+   * @param number Card number 1-13
+   * @return Value 1-10
+   */
+  public static int valueOf(int number) {
+    return Math.min(number, NUM_OF_VALUES);
+  }
+
+  public boolean equals(Object other) {
+    return other instanceof CompositionKey
+        && ((CompositionKey) other).low == low
+        && ((CompositionKey) other).high == high;
+  }
+
+  public int hashCode() {
+    return Long.hashCode(low * 31 + high);
+  }
+}
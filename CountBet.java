@@ -0,0 +1,43 @@
+/**
+ * A bet policy that spreads the bet with the Hi-Lo true count: one unit while
+ * the count is at most 2, then one more unit for every further true count, up
+ * to a largest number of units.
+ *
+ * The spread is the usual one for a real shoe, where a high true count means
+ * the next cards are rich in tens and aces. The game's Shoe deals every card
+ * number left with equal chances whatever its count, so the count tells less
+ * about the next cards than it does in a real shoe and the spread raises the
+ * bet on a smaller edge than it assumes.
+ *
+ * @author Aimee Shao
+ */
+public class CountBet implements BetPolicy {
+
+  // Largest bet when none is given, in units
+  static final int DEFAULT_MAX_UNITS = 8;
+
+  private final long unit; // smallest bet, in cents
+  private final int maxUnits; // largest bet, in units
+
+  /**
+   * Constructor for the policy.
+   * @param unit Smallest bet, in cents
+   * @param maxUnits Largest bet, in units
+   */
+  CountBet(long unit, int maxUnits) {
+    this.unit = unit;
+    this.maxUnits = maxUnits;
+  }
+
+  /**
+   * Bets one unit per true count above 1, between 1 and the largest number of
+   * units.
+   * @param bankroll Money the player has, in cents
+   * @param trueCount Hi-Lo true count of the shoe
+   * @return Bet in cents
+   */
+  public long bet(long bankroll, double trueCount) {
+    int units = (int) trueCount - 1;
+    return unit * Math.max(1, Math.min(maxUnits, units));
+  }
+}
@@ -0,0 +1,131 @@
+import java.io.ByteArrayOutputStream;
+import java.util.SplittableRandom;
+
+/**
+ * CounterRoundCheck checks that a counter-based round gives the same hint as
+ * the same cards dealt from a normal shoe. For many rounds, it sets up a board
+ * dealing the round with --start-round and a board whose generator is jumped
+ * to the round's split by hand, so both deal the same cards from a full shoe,
+ * and compares everything the two boards print, including the chance of
+ * busting, the dealer's odds and the advice. It exits with status 1 on the
+ * first round that differs.
+ *
+ * The normal shoe is jumped with the same jumpToSplit the counter-based
+ * rounds use, so first it checks that the i-th jump gives the same numbers
+ * as the i-th split of a CardRandom and of a SplittableRandom made from the
+ * key one after another.
+ *
+ * Run it with `make check`.
+ *
+ * @author Aimee Shao
+ */
+public class CounterRoundCheck {
+
+  // Rounds checked for each number of decks
+  private static final int NUM_ROUNDS = 2000;
+
+  // Seed the rounds are keyed by
+  private static final long KEY = 1;
+
+  // Numbers of decks checked
+  private static final int[] NUM_DECKS = {1, 2, 6, 8};
+
+  // Splits whose jumps are checked, and numbers compared of each
+  private static final int NUM_SPLITS = 10000;
+  private static final int NUMBERS_PER_SPLIT = 4;
+
+  // Strings of the results
+  private static final String JUMP_MISMATCH_STR = "Jump to split %d differs"
+      + " at number %d: %d jumped, %d split from CardRandom, %d split from"
+      + " SplittableRandom\n";
+  private static final String JUMPS_PASSED_STR = "Jumps match the splits of"
+      + " CardRandom and SplittableRandom for %d splits.\n";
+  private static final String MISMATCH_STR = "Round %d with %d deck(s) differs"
+      + ":\n--- start-round ---\n%s--- normal shoe ---\n%s";
+  private static final String PASSED_STR = "Counter-based hints match normal"
+      + " shoes in %d rounds.\n";
+
+  /**
+   * Compares the hints of counter-based rounds with normal shoes.
+   * @param args Command line arguments, not used
+   * @return Nothing.
+   */
+  public static void main(String[] args) {
+    checkJumps();
+
+    int checked = 0;
+    for (int numDecks : NUM_DECKS) {
+      Rules rules = new Rules(numDecks, Rules.DEFAULT_PENETRATION
+          , Rules.NO_OPTIONS);
+
+      for (long round = 1; round <= NUM_ROUNDS; round++) {
+        String counterHint = hintOf(rules, new CardRandom(KEY), round);
+
+        CardRandom rand = new CardRandom(0);
+        rand.jumpToSplit(KEY, round - 1);
+        String normalHint = hintOf(rules, rand, 0);
+
+        if (!counterHint.equals(normalHint)) {
+          System.out.printf(MISMATCH_STR, round, numDecks, counterHint
+              , normalHint);
+          System.exit(1);
+        }
+        checked += 1;
+      }
+    }
+
+    System.out.printf(PASSED_STR, checked);
+  }
+
+  /**
+   * Helper method that checks every jump to a split against the splits made
+   * one after another by CardRandom and by SplittableRandom. Exits with
+   * status 1 on the first number that differs.
+   * @return Nothing.
+   */
+  private static void checkJumps() {
+    CardRandom cardSplits = new CardRandom(KEY);
+    SplittableRandom javaSplits = new SplittableRandom(KEY);
+    CardRandom jumped = new CardRandom(0);
+
+    for (int i = 0; i < NUM_SPLITS; i++) {
+      CardRandom cardSplit = cardSplits.split();
+      SplittableRandom javaSplit = javaSplits.split();
+      jumped.jumpToSplit(KEY, i);
+
+      for (int n = 0; n < NUMBERS_PER_SPLIT; n++) {
+        long jumpedNumber = jumped.nextLong();
+        long cardNumber = cardSplit.nextLong();
+        long javaNumber = javaSplit.nextLong();
+        if (jumpedNumber != cardNumber || jumpedNumber != javaNumber) {
+          System.out.printf(JUMP_MISMATCH_STR, i, n, jumpedNumber, cardNumber
+              , javaNumber);
+          System.exit(1);
+        }
+      }
+    }
+
+    System.out.printf(JUMPS_PASSED_STR, NUM_SPLITS);
+  }
+
+  /**
+   * Helper method that deals a round on a new board and asks for a hint.
+   * @param rules Rules of the board
+   * @param rand Random generator used in dealing cards
+   * @param round Number of the counter-based round to deal, or 0 to deal
+   *              the first round of a normal shoe
+   * @return Everything the board printed
+   */
+  private static String hintOf(Rules rules, CardRandom rand, long round) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Output out = new BufferedOutput(bytes);
+    Board board = new Board(1, rules, out, rand);
+    if (round > 0)
+      board.setCounterRounds(KEY, round);
+
+    board.setup();
+    board.printActiveHint();
+    out.flush();
+    return bytes.toString();
+  }
+}
@@ -0,0 +1,128 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DealerOdds calculates the exact chances of each final total of the dealer
+ * (17-21 or bust) given the dealer's face up card and the cards left. The
+ * dealer follows the same rules as at the end of the game: hit while the
+ * total is less than 17, and on a soft 17 if the rules say so, with aces
+ * counted like in a player's total.
+ *
+ * The chances are those of a real shoe, where every card left is equally
+ * likely to be drawn. The game's Shoe deals every card number left with
+ * equal chances whatever its count, so it deals the numbers that are running
+ * low more often than this assumes, and its dealer finishes on each total a
+ * little more or less often than calculated here.
+ *
+ * Results are kept in a bounded cache with the least recently used entry
+ * removed first, so asking again with the same cards is a single lookup.
+ *
+ * @author Aimee Shao
+ */
+public class DealerOdds {
+
+  // Indexes of the odds: totals 17-21 are at index total - 17, then bust
+  public static final int NUM_OF_TOTALS = 6;
+  public static final int BUST = 5;
+
+  private static final int NUM_OF_VALUES = CompositionKey.NUM_OF_VALUES;
+  private static final int ACE_AS_ELEVEN = 11;
+
+  private Map<CompositionKey, double[]> cache; // odds asked before
+  private int[] counts; // count of each value while calculating
+  private final boolean hitSoft17; // whether the dealer hits a soft 17
+
+  /**
+   * Constructor for the odds calculator of a dealer who stays on soft 17.
+   * @param cacheSize Maximum number of compositions kept in the cache
+   */
+  DealerOdds(int cacheSize) {
+    this(cacheSize, false);
+  }
+
+  /**
+   * Constructor for the odds calculator.
+   * @param cacheSize Maximum number of compositions kept in the cache
+   * @param hitSoft17 Whether the dealer hits a soft 17
+   */
+  DealerOdds(int cacheSize, boolean hitSoft17) {
+    cache = new LinkedHashMap<CompositionKey, double[]>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(
+          Map.Entry<CompositionKey, double[]> eldest) {
+        return size() > cacheSize;
+      }
+    };
+    counts = new int[NUM_OF_VALUES];
+    this.hitSoft17 = hitSoft17;
+  }
+
+  /**
+   * Calculates the chances of each final total of the dealer.
+   * @param upCard Number 1-13 of the dealer's face up card
+   * @param deck Count of each card number 1-13 the dealer may draw, not
+   *             including the face up card
+   * @param odds Array of NUM_OF_TOTALS that the chances are written into
+   * @return None.
+   */
+  public synchronized void getOdds(int upCard, int[] deck, double[] odds) {
+    // collapse 10,J,Q,K into one value
+    int cardsLeft = CompositionKey.collapse(deck, counts);
+    int value = CompositionKey.valueOf(upCard);
+
+    CompositionKey key = new CompositionKey(value, counts);
+    double[] cached = cache.get(key);
+
+    if (cached == null) {
+      cached = new double[NUM_OF_TOTALS];
+
+      // dealer starts with the face up card and always hits a single card
+      boolean soft = value == 1;
+      int total = soft ? ACE_AS_ELEVEN : value;
+      draw(total, soft, cardsLeft, 1.0, cached);
+
+      cache.put(key, cached);
+    }
+
+    System.arraycopy(cached, 0, odds, 0, NUM_OF_TOTALS);
+  }
+
+  /**
+   * Helper method that draws every possible next card of the dealer and adds
+   * the chance of each final total to the odds.
+   * @param total Dealer's current total
+   * @param soft Whether the dealer has an ace counted as 11
+   * @param cardsLeft Number of cards left to draw from
+   * @param chance Chance of reaching this hand
+   * @param odds Odds to add to
+   * @return None.
+   */
+  private void draw(int total, boolean soft, int cardsLeft, double chance
+      , double[] odds) {
+    // no cards left to draw from; this hand cannot happen
+    if (cardsLeft == 0)
+      return;
+
+    for (int v = 0; v < NUM_OF_VALUES; v++) {
+      if (counts[v] == 0)
+        continue;
+
+      double next = chance * counts[v] / cardsLeft;
+      int value = v + 1;
+
+      int hand = Hand.addValue(total, soft, value);
+      int newTotal = hand & Hand.SOFT_TOTAL_MASK;
+      boolean newSoft = hand >= Hand.SOFT_FLAG;
+
+      if (newTotal > Player.BUST_NUM)
+        odds[BUST] += next;
+      else if (newTotal >= Board.DEALER_MINIMUM && !(hitSoft17 && newSoft
+          && newTotal == Board.DEALER_MINIMUM))
+        odds[newTotal - Board.DEALER_MINIMUM] += next;
+      else {
+        counts[v] -= 1;
+        draw(newTotal, newSoft, cardsLeft - 1, next, odds);
+        counts[v] += 1;
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EventLog subscribes to a GameEventPublisher and writes every event it gets
+ * as one line. It asks for events in batches as it writes them, so events it
+ * cannot keep up with stay in the publisher's buffer, and are dropped once
+ * that is full, instead of slowing the game down.
+ *
+ * @author Aimee Shao
+ */
+public class EventLog implements Flow.Subscriber<GameEvent> {
+
+  // Events asked for at once; more are asked for after half of them
+  private static final int BATCH_SIZE = 64;
+
+  // String written when the stream fails
+  private static final String ERROR_STR = "Event stream failed: %s\n";
+
+  private Output out; // where the events are written
+  private Flow.Subscription subscription = null; // set once subscribed
+  private int untilRequest = 0; // events to write before asking for more
+  private long numEvents = 0; // events written
+  private CountDownLatch done; // counted down when the stream ends
+
+  /**
+   * Constructor for the log.
+   * @param out Where the events are written
+   */
+  EventLog(Output out) {
+    this.out = out;
+    done = new CountDownLatch(1);
+  }
+
+  /**
+   * Asks for the first batch of events.
+   * @param subscription Subscription to the publisher
+   * @return None.
+   */
+  public void onSubscribe(Flow.Subscription subscription) {
+    this.subscription = subscription;
+    untilRequest = BATCH_SIZE / 2;
+    subscription.request(BATCH_SIZE);
+  }
+
+  /**
+   * Writes an event, asking for more once half of the batch is written.
+   * @param event The event
+   * @return None.
+   */
+  public void onNext(GameEvent event) {
+    out.println(event.toString());
+    numEvents += 1;
+
+    if (--untilRequest == 0) {
+      untilRequest = BATCH_SIZE / 2;
+      subscription.request(BATCH_SIZE / 2);
+    }
+  }
+
+  /**
+   * Writes why the stream failed and ends the log.
+   * @param error Why the stream failed
+   * @return None.
+   */
+  public void onError(Throwable error) {
+    out.printf(ERROR_STR, error);
+    finish();
+  }
+
+  /**
+   * Ends the log once the publisher is closed.
+   * @return None.
+   */
+  public void onComplete() {
+    finish();
+  }
+
+  /**
+   * Waits for the publisher to be closed and every event to be written.
+   * @param timeoutMillis Most milliseconds to wait
+   * @return true if the log ended, false if the time ran out
+   */
+  public boolean await(long timeoutMillis) {
+    try {
+      return done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Returns the number of events written, which is safe to read once await
+   * returned true.
+   * @return Number of events
+   */
+  public long getNumEvents() {
+    return numEvents;
+  }
+
+  /**
+   * Helper method that flushes the output and ends the log.
+   * @return None.
+   */
+  private void finish() {
+    out.flush();
+    done.countDown();
+  }
+}
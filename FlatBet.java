@@ -0,0 +1,31 @@
+/**
+ * A bet policy that bets the same amount every round, no matter the bankroll
+ * or the count.
+ *
+ * @author Aimee Shao
+ */
+public class FlatBet implements BetPolicy {
+
+  // Bet when none is given: $10
+  static final long DEFAULT_UNIT = 1000;
+
+  private final long unit; // amount bet every round, in cents
+
+  /**
+   * Constructor for the policy.
+   * @param unit Amount bet every round, in cents
+   */
+  FlatBet(long unit) {
+    this.unit = unit;
+  }
+
+  /**
+   * Bets the unit.
+   * @param bankroll Money the player has, in cents
+   * @param trueCount Hi-Lo true count of the shoe
+   * @return The unit
+   */
+  public long bet(long bankroll, double trueCount) {
+    return unit;
+  }
+}
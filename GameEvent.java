@@ -0,0 +1,144 @@
+/**
+ * A GameEvent is one thing that happened at a board: a round starting, a card
+ * dealt, an action chosen, a hand busting or the result of a hand. Events are
+ * immutable, so subscribers may keep them, and the events of the usual seats,
+ * hands and values are created once and shared, so publishing them at
+ * simulation rates allocates nothing.
+ *
+ * @author Aimee Shao
+ */
+public final class GameEvent {
+
+  // Types of events, the same as the records of HandRecorder where they match
+  public static final int ROUND = HandRecorder.ROUND;
+  public static final int CARD = HandRecorder.CARD;
+  public static final int ACTION = HandRecorder.ACTION;
+  public static final int RESULT = HandRecorder.RESULT;
+  public static final int BUST = RESULT + 1;
+  private static final int NUM_OF_TYPES = BUST + 1;
+
+  // Outcome of events that have none, such as the dealer's result
+  public static final int NO_OUTCOME = HandRecorder.NO_OUTCOME;
+
+  // Ranges of the shared events; others are created when published
+  private static final int SHARED_SEATS = 8;
+  private static final int SHARED_VALUES = 32;
+  private static final int SHARED_OUTCOMES = RoundResult.NUM_OF_OUTCOMES + 1;
+
+  // Strings of the events
+  private static final String ROUND_STR = "round";
+  private static final String EVENT_STR = "%s seat %d hand %d: %d";
+  private static final String OUTCOME_STR = " %d";
+  private static final String[] TYPE_STRS = {null, ROUND_STR, "card", "action"
+      , "result", "bust"};
+
+  // shared events, created the first time they are needed; since events are
+  // immutable, threads racing to create one can each use their own
+  private static final GameEvent[] SHARED = new GameEvent[NUM_OF_TYPES
+      * SHARED_SEATS * Player.MAX_HANDS * SHARED_VALUES * SHARED_OUTCOMES];
+
+  private final int type; // one of the types above
+  private final int seat; // seat of the event, 0 for the dealer
+  private final int hand; // index of the seat's hand
+  private final int value; // card number, action or total, by type
+  private final int outcome; // outcome of a RESULT, otherwise NO_OUTCOME
+
+  /**
+   * Constructor for the event.
+   * @param type One of the types of events
+   * @param seat Seat of the event, 0 for the dealer
+   * @param hand Index of the seat's hand
+   * @param value Number of the card, action or total
+   * @param outcome One of RoundResult's outcomes, or NO_OUTCOME
+   */
+  private GameEvent(int type, int seat, int hand, int value, int outcome) {
+    this.type = type;
+    this.seat = seat;
+    this.hand = hand;
+    this.value = value;
+    this.outcome = outcome;
+  }
+
+  /**
+   * Returns the event, shared if it is in the usual range.
+   * @param type One of the types of events
+   * @param seat Seat of the event, 0 for the dealer
+   * @param hand Index of the seat's hand
+   * @param value Number of the card for a CARD, the action for an ACTION,
+   *              otherwise the total
+   * @param outcome One of RoundResult's outcomes for a player's RESULT,
+   *                otherwise NO_OUTCOME
+   * @return The event
+   */
+  static GameEvent of(int type, int seat, int hand, int value, int outcome) {
+    int outcomeIndex = outcome == NO_OUTCOME ? SHARED_OUTCOMES - 1 : outcome;
+    if (seat >= SHARED_SEATS || value >= SHARED_VALUES)
+      return new GameEvent(type, seat, hand, value, outcome);
+
+    int index = (((type * SHARED_SEATS + seat) * Player.MAX_HANDS + hand)
+        * SHARED_VALUES + value) * SHARED_OUTCOMES + outcomeIndex;
+    GameEvent event = SHARED[index];
+    if (event == null) {
+      event = new GameEvent(type, seat, hand, value, outcome);
+      SHARED[index] = event;
+    }
+
+    return event;
+  }
+
+  /**
+   * Returns the type of the event.
+   * @return One of the types of events
+   */
+  public int getType() {
+    return type;
+  }
+
+  /**
+   * Returns the seat of the event.
+   * @return Seat, 0 for the dealer
+   */
+  public int getSeat() {
+    return seat;
+  }
+
+  /**
+   * Returns the index of the seat's hand, which is above 0 only after
+   * splitting.
+   * @return Index of the hand
+   */
+  public int getHand() {
+    return hand;
+  }
+
+  /**
+   * Returns the value of the event.
+   * @return Number 1-13 of a CARD, one of Policy's actions or HandRecorder's
+   *         HINT or INSURANCE for an ACTION, the total of a BUST or RESULT,
+   *         and 0 for a ROUND
+   */
+  public int getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the outcome of a player's RESULT.
+   * @return One of RoundResult's outcomes, or NO_OUTCOME
+   */
+  public int getOutcome() {
+    return outcome;
+  }
+
+  /**
+   * Returns the event as one line of text, such as "card seat 1 hand 0: 10".
+   * @return The event
+   */
+  public String toString() {
+    if (type == ROUND)
+      return ROUND_STR;
+
+    String event = String.format(EVENT_STR, TYPE_STRS[type], seat, hand, value);
+    return outcome == NO_OUTCOME ? event
+        : event + String.format(OUTCOME_STR, outcome);
+  }
+}
@@ -0,0 +1,148 @@
+import java.io.Closeable;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * GameEventPublisher publishes the events of one or more boards as a
+ * java.util.concurrent.Flow stream, so loggers, statistics or user interfaces
+ * can follow a game as it is played. Every subscriber gets its events on its
+ * own from a bounded buffer and asks for more as it keeps up. Publishing
+ * never waits: an event that does not fit in a slow subscriber's buffer is
+ * dropped for that subscriber and counted, so a subscriber can never stall
+ * the dealing.
+ *
+ * @author Aimee Shao
+ */
+public class GameEventPublisher implements Closeable {
+
+  // Events buffered for each subscriber by default
+  static final int DEFAULT_BUFFER_SIZE = Flow.defaultBufferSize();
+
+  private SubmissionPublisher<GameEvent> publisher; // delivers the events
+  private LongAdder numDropped; // events dropped for slow subscribers
+
+  // counts the events dropped, created once so publishing allocates nothing
+  private BiPredicate<Flow.Subscriber<? super GameEvent>, ? super GameEvent>
+      onDrop;
+
+  /**
+   * Constructor for the publisher with the default buffer size.
+   */
+  GameEventPublisher() {
+    this(DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Constructor for the publisher.
+   * @param bufferSize Most events buffered for each subscriber, rounded up
+   *                   to a power of two
+   */
+  GameEventPublisher(int bufferSize) {
+    publisher = new SubmissionPublisher<>(ForkJoinPool.commonPool()
+        , bufferSize);
+    numDropped = new LongAdder();
+    onDrop = (subscriber, event) -> {
+      numDropped.increment();
+      return false; // do not retry
+    };
+  }
+
+  /**
+   * Adds a subscriber, which gets the events published from now on.
+   * @param subscriber The subscriber
+   * @return None.
+   */
+  public void subscribe(Flow.Subscriber<? super GameEvent> subscriber) {
+    publisher.subscribe(subscriber);
+  }
+
+  /**
+   * Publishes the start of a round.
+   * @return None.
+   */
+  public void publishRound() {
+    publish(GameEvent.ROUND, 0, 0, 0, GameEvent.NO_OUTCOME);
+  }
+
+  /**
+   * Publishes a card dealt to a hand of a seat.
+   * @param seat Seat the card was dealt to, 0 for the dealer
+   * @param hand Index of the seat's hand
+   * @param number Number 1-13 of the card
+   * @return None.
+   */
+  public void publishCard(int seat, int hand, int number) {
+    publish(GameEvent.CARD, seat, hand, number, GameEvent.NO_OUTCOME);
+  }
+
+  /**
+   * Publishes what a player chose to do with a hand.
+   * @param seat Seat of the player
+   * @param hand Index of the player's hand
+   * @param action One of Policy's actions, or HINT or INSURANCE of
+   *               HandRecorder
+   * @return None.
+   */
+  public void publishAction(int seat, int hand, int action) {
+    publish(GameEvent.ACTION, seat, hand, action, GameEvent.NO_OUTCOME);
+  }
+
+  /**
+   * Publishes a hand of a seat going over 21.
+   * @param seat Seat of the hand, 0 for the dealer
+   * @param hand Index of the seat's hand
+   * @param total Total of the hand
+   * @return None.
+   */
+  public void publishBust(int seat, int hand, int total) {
+    publish(GameEvent.BUST, seat, hand, total, GameEvent.NO_OUTCOME);
+  }
+
+  /**
+   * Publishes the final total of a hand of a seat and its outcome.
+   * @param seat Seat of the hand, 0 for the dealer
+   * @param hand Index of the seat's hand
+   * @param total Final total
+   * @param outcome One of RoundResult's outcomes, or NO_OUTCOME for the
+   *                dealer
+   * @return None.
+   */
+  public void publishResult(int seat, int hand, int total, int outcome) {
+    publish(GameEvent.RESULT, seat, hand, total, outcome);
+  }
+
+  /**
+   * Returns the number of events dropped because a subscriber's buffer was
+   * full, counted once for every subscriber that missed them.
+   * @return Number of events dropped
+   */
+  public long getNumDropped() {
+    return numDropped.sum();
+  }
+
+  /**
+   * Stops publishing. Every subscriber gets the events still in its buffer
+   * and then onComplete.
+   * @return None.
+   */
+  public void close() {
+    publisher.close();
+  }
+
+  /**
+   * Helper method that offers an event to every subscriber without waiting.
+   * @param type One of GameEvent's types
+   * @param seat Seat of the event
+   * @param hand Index of the seat's hand
+   * @param value Number of the card, action or total
+   * @param outcome One of RoundResult's outcomes, or NO_OUTCOME
+   * @return None.
+   */
+  private void publish(int type, int seat, int hand, int value, int outcome) {
+    if (publisher.hasSubscribers())
+      publisher.offer(GameEvent.of(type, seat, hand, value, outcome), onDrop);
+  }
+}
@@ -1,37 +1,145 @@
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * This class serves as the hand of a player. It contains the cards in a
- * player's hand.
+ * player's hand along with their total, which is kept up to date as cards are
+ * added, and whether the bet on the hand was doubled. The cards are kept in a
+ * byte array that is reused every round, so adding cards does not create
+ * garbage.
+ *
+ * The total after a card is looked up in a transition table indexed by the
+ * total so far, whether an ace is counted as 11 and the card's number. Each
+ * entry holds the new total, whether an ace is still counted as 11 and how
+ * many more aces are counted as 1, so adding a card is one array load instead
+ * of branching on the card and changing aces from 11 to 1 in a loop. The
+ * table is built once from the same rules and shared by every hand.
  *
  * @author Aimee Shao
  */
 public class Hand {
 
-  private ArrayList<Integer> cards; // the cards in the hand
+  // Starting capacity; enough for almost every hand
+  private static final int INITIAL_CAPACITY = 12;
+
+  private static final int FACE_CARD_AMT = 10;
+  private static final int KING_AS_INT = 13;
+  private static final int ACE_AS_ELEVEN = 11;
+
+  // Fields of a transition: the new total, whether an ace is still counted as
+  // 11, and how many aces were added as or changed to 1 and changed from 11
+  private static final int TOTAL_MASK = 0xFFFF;
+  private static final int SOFT_SHIFT = 16;
+  private static final int ONE_SHIFT = 17;
+  private static final int DEMOTED_SHIFT = 19;
+  private static final int COUNT_MASK = 0x3;
+
+  // Flag of a soft total returned by addValue, above any total
+  static final int SOFT_FLAG = 1 << 5;
+  static final int SOFT_TOTAL_MASK = SOFT_FLAG - 1;
+
+  // Transitions of every hand that is not bust, indexed by
+  // (total * 2 + aceAsElevenCount) << NUMBER_BITS | number
+  private static final int NUMBER_BITS = 4;
+  private static final int[] TRANSITIONS = buildTransitions();
+
+  private byte[] cards; // the cards in the hand
+  private int size = 0; // number of cards in the hand
+  private int total = 0; // sum of the cards
+  private int aceAsElevenCount = 0; // number of aces counted as 11 in total
+  private int aceAsOneCount = 0; // number of aces counted as 1 in total
+  private boolean doubled = false; // whether the bet was doubled
 
   /**
-   * Default constructor for hand, initializing list of cards.
+   * Default constructor for hand, initializing array of cards.
    */
   Hand() {
-    cards = new ArrayList<>();
+    cards = new byte[INITIAL_CAPACITY];
   }
 
   /**
-   * Adds a card to the hand.
+   * Adds a card to the hand and its total.
    * @param number Number of the card to add to the hand.
    * @return None.
    */
   public void add(int number) {
-    cards.add(number);
+    // grow in the rare case of a very long hand; kept for later rounds
+    if (size == cards.length)
+      cards = Arrays.copyOf(cards, cards.length * 2);
+
+    cards[size] = (byte) number;
+    size += 1;
+
+    // hands that are already bust are rare, so they are not in the table
+    int transition;
+    if (total <= Player.BUST_NUM)
+      transition = TRANSITIONS[((total << 1) + aceAsElevenCount)
+          << NUMBER_BITS | number];
+    else
+      transition = transition(total, aceAsElevenCount, number);
+
+    if (Metrics.ENABLED) {
+      Metrics.ACE_DEMOTIONS.add(transition >>> DEMOTED_SHIFT & COUNT_MASK);
+      if (total <= Player.BUST_NUM
+          && (transition & TOTAL_MASK) > Player.BUST_NUM)
+        Metrics.BUSTS.increment();
+    }
+
+    total = transition & TOTAL_MASK;
+    aceAsElevenCount = transition >>> SOFT_SHIFT & 1;
+    aceAsOneCount += transition >>> ONE_SHIFT & COUNT_MASK;
+  }
+
+  /**
+   * Removes all cards from the hand.
+   * @return None.
+   */
+  public void clear() {
+    size = 0;
+    total = 0;
+    aceAsElevenCount = 0;
+    aceAsOneCount = 0;
+    doubled = false;
+  }
+
+  /**
+   * Returns the sum of the cards.
+   * @return Total of the hand
+   */
+  public int getTotal() {
+    return total;
   }
 
   /**
-   * Returns the cards in hand.
-   * @return List of cards.
+   * Returns the number of aces counted as 11 in the total.
+   * @return Number of aces counted as 11
    */
-  public ArrayList<Integer> getCards() {
-    return cards;
+  public int getAceAsElevenCount() {
+    return aceAsElevenCount;
+  }
+
+  /**
+   * Returns the number of aces counted as 1 in the total.
+   * @return Number of aces counted as 1
+   */
+  public int getAceAsOneCount() {
+    return aceAsOneCount;
+  }
+
+  /**
+   * Marks the bet on the hand as doubled.
+   * @return None.
+   */
+  void setDoubled() {
+    doubled = true;
+  }
+
+  /**
+   * Returns whether the bet on the hand was doubled.
+   * @return true if doubled
+   */
+  public boolean isDoubled() {
+    return doubled;
   }
 
   /**
@@ -39,7 +147,7 @@ public class Hand {
    * @return Number of face up card.
    */
   public int getFirstCard() {
-    return cards.get(0);
+    return getCard(0);
   }
 
   /**
@@ -47,7 +155,7 @@ public class Hand {
    * @return Size of hand.
    */
   public int getSize() {
-    return cards.size();
+    return size;
   }
 
   /**
@@ -56,6 +164,124 @@ public class Hand {
    * @return Card number.
    */
   public int getCard(int pos) {
-    return cards.get(pos);
+    if (pos >= size)
+      throw new IndexOutOfBoundsException("Card " + pos + " of " + size);
+
+    return cards[pos];
+  }
+
+  /**
+   * Returns the number of bytes saveState writes.
+   * @return Size of the state
+   */
+  public int getStateSize() {
+    return 4 * Integer.BYTES + 1 + size;
+  }
+
+  /**
+   * Writes the cards of the hand, its total and whether it was doubled.
+   * @param buffer Buffer to write to, with getStateSize bytes left
+   * @return None.
+   */
+  public void saveState(ByteBuffer buffer) {
+    buffer.putInt(size).putInt(total).putInt(aceAsElevenCount)
+        .putInt(aceAsOneCount).put((byte) (doubled ? 1 : 0));
+    buffer.put(cards, 0, size);
+  }
+
+  /**
+   * Reads a state written by saveState, replacing the current one.
+   * @param buffer Buffer to read from
+   * @return None.
+   * @throws IllegalArgumentException If the state is not valid
+   */
+  public void restoreState(ByteBuffer buffer) {
+    int savedSize = buffer.getInt();
+    if (savedSize < 0 || savedSize > buffer.remaining())
+      throw new IllegalArgumentException("hand of " + savedSize + " cards");
+
+    if (savedSize > cards.length)
+      cards = new byte[savedSize];
+
+    size = savedSize;
+    total = buffer.getInt();
+    aceAsElevenCount = buffer.getInt();
+    aceAsOneCount = buffer.getInt();
+    doubled = buffer.get() != 0;
+    buffer.get(cards, 0, size);
+  }
+
+  /**
+   * Adds a card's value to a total the way a hand does, for the odds engines
+   * that follow totals instead of hands: an ace counts as 11 unless that
+   * busts, and while the total is over 21 an ace counted as 11 is changed to
+   * 1.
+   * @param total Total before the card
+   * @param soft Whether an ace is counted as 11 in the total
+   * @param value Value 1-10 of the card
+   * @return The new total, with SOFT_FLAG set if an ace is still counted as
+   *         11
+   */
+  static int addValue(int total, boolean soft, int value) {
+    int transition = transition(total, soft ? 1 : 0, value);
+    int newTotal = transition & TOTAL_MASK;
+    return (transition >>> SOFT_SHIFT & 1) != 0 ? newTotal | SOFT_FLAG
+        : newTotal;
+  }
+
+  /**
+   * Helper method that adds a card to a total: an ace counts as 11 first, 10,
+   * J, Q and K count as 10, and while the total is over 21 an ace counted as
+   * 11 is changed to 1.
+   * @param total Total before the card
+   * @param aceAsElevenCount Number of aces counted as 11 before the card
+   * @param number Number of the card
+   * @return The transition, with the fields packed as in the table
+   */
+  private static int transition(int total, int aceAsElevenCount, int number) {
+    int aceAsOneAdded = 0;
+    int demoted = 0;
+
+    // if ace, add as 11 to total first
+    if (number == 1) {
+      total += ACE_AS_ELEVEN;
+      aceAsElevenCount += 1;
+    }
+    else if (number >= FACE_CARD_AMT && number <= KING_AS_INT) // 10,J,Q,K = 10
+      total += FACE_CARD_AMT;
+    else // 2-9 cards
+      total += number;
+
+    // while busted but have an aceAsEleven, change the ace's values to 1
+    while (total > Player.BUST_NUM && aceAsElevenCount > 0) {
+      aceAsElevenCount -= 1;
+      aceAsOneAdded += 1;
+      demoted += 1;
+
+      total = total - ACE_AS_ELEVEN + 1;
+    }
+
+    return total | aceAsElevenCount << SOFT_SHIFT | aceAsOneAdded << ONE_SHIFT
+        | demoted << DEMOTED_SHIFT;
+  }
+
+  /**
+   * Helper method that builds the transition of every total that is not
+   * bust, with and without an ace counted as 11, and every card number.
+   * @return The transitions
+   */
+  private static int[] buildTransitions() {
+    int[] transitions = new int[(Player.BUST_NUM + 1) * 2 << NUMBER_BITS];
+
+    for (int total = 0; total <= Player.BUST_NUM; total++) {
+      for (int soft = 0; soft <= 1; soft++) {
+        for (int number = 1; number <= KING_AS_INT; number++) {
+          transitions[((total << 1) + soft) << NUMBER_BITS | number] =
+              transition(total, soft, number);
+        }
+      }
+    }
+
+    return transitions;
   }
 }
@@ -0,0 +1,144 @@
+/**
+ * HandCheck checks the transition table of Hand against the arithmetic it
+ * replaced. It deals every sequence of card numbers 1-13 to a player, one
+ * card at a time until the hand busts, and after every card compares the
+ * total, the aces counted as 11 and as 1, whether the hand busted and whether
+ * it is a blackjack with the original branches and loop over the aces. It
+ * exits with status 1 on the first card that differs.
+ *
+ * Run it with `make check`.
+ *
+ * @author Aimee Shao
+ */
+public class HandCheck {
+
+  // Cards of a hand before it must bust: 21 aces counted as 1, and one more
+  private static final int MAX_CARDS = Player.BUST_NUM + 1;
+
+  // Used in the original arithmetic
+  private static final int FACE_CARD_AMT = 10;
+  private static final int KING_AS_INT = 13;
+  private static final int ACE_AS_ELEVEN = 11;
+
+  // Strings of the results
+  private static final String MISMATCH_STR = "Cards %s differ: table gives"
+      + " %s, arithmetic gives %s\n";
+  private static final String STATE_STR = "total %d, %d ace(s) as 11, %d as"
+      + " 1, bust %b, blackjack %b";
+  private static final String PASSED_STR = "Hand totals match the arithmetic"
+      + " for %d card sequences.\n";
+
+  private static int[] cards = new int[MAX_CARDS]; // cards of the sequence
+  private static long numSequences = 0; // sequences checked
+
+  // state of the original arithmetic after each card of the sequence
+  private static int[] totals = new int[MAX_CARDS + 1];
+  private static int[] aceAsElevenCounts = new int[MAX_CARDS + 1];
+  private static int[] aceAsOneCounts = new int[MAX_CARDS + 1];
+
+  /**
+   * Compares every card sequence up to a bust with the original arithmetic.
+   * @param args Command line arguments, not used
+   * @return Nothing.
+   */
+  public static void main(String[] args) {
+    check(new Player(), 0);
+    System.out.printf(PASSED_STR, numSequences);
+  }
+
+  /**
+   * Helper method that checks every card added to a sequence and, while the
+   * hand is not bust, every sequence starting with it.
+   * @param player Player dealt the sequences
+   * @param size Number of cards of the sequence so far
+   * @return Nothing.
+   */
+  private static void check(Player player, int size) {
+    for (int number = 1; number <= KING_AS_INT; number++) {
+      cards[size] = number;
+      add(size, number);
+      numSequences += 1;
+
+      // deal the sequence again, so the table is used from an empty hand
+      player.reset();
+      for (int c = 0; c <= size; c++) {
+        player.hit(cards[c]);
+      }
+
+      int total = totals[size + 1];
+      boolean bust = total > Player.BUST_NUM;
+      boolean blackjack = size == 1 && total == Player.BUST_NUM;
+      Hand hand = player.getHand();
+      if (hand.getTotal() != total
+          || hand.getAceAsElevenCount() != aceAsElevenCounts[size + 1]
+          || hand.getAceAsOneCount() != aceAsOneCounts[size + 1]
+          || player.getBusted() != bust
+          || (hand.getSize() == 2 && hand.getTotal() == Player.BUST_NUM)
+          != blackjack) {
+        System.out.printf(MISMATCH_STR, sequenceToString(size + 1)
+            , String.format(STATE_STR, hand.getTotal()
+            , hand.getAceAsElevenCount(), hand.getAceAsOneCount()
+            , player.getBusted()
+            , hand.getSize() == 2 && hand.getTotal() == Player.BUST_NUM)
+            , String.format(STATE_STR, total, aceAsElevenCounts[size + 1]
+            , aceAsOneCounts[size + 1], bust, blackjack));
+        System.exit(1);
+      }
+
+      if (!bust)
+        check(player, size + 1);
+    }
+  }
+
+  /**
+   * Helper method that adds a card with the original arithmetic: an ace
+   * counts as 11 first, 10, J, Q and K count as 10, and while the total is
+   * over 21 an ace counted as 11 is changed to 1.
+   * @param size Number of cards before the card
+   * @param number Number of the card
+   * @return Nothing.
+   */
+  private static void add(int size, int number) {
+    int total = totals[size];
+    int aceAsElevenCount = aceAsElevenCounts[size];
+    int aceAsOneCount = aceAsOneCounts[size];
+
+    // if ace, add as 11 to total first
+    if (number == 1) {
+      total += ACE_AS_ELEVEN;
+      aceAsElevenCount += 1;
+    }
+    else if (number >= FACE_CARD_AMT && number <= KING_AS_INT) // 10,J,Q,K = 10
+      total += FACE_CARD_AMT;
+    else // 2-9 cards
+      total += number;
+
+    // while busted but have an aceAsEleven, change the ace's values to 1
+    while (total > Player.BUST_NUM && aceAsElevenCount > 0) {
+      aceAsElevenCount -= 1;
+      aceAsOneCount += 1;
+
+      total = total - ACE_AS_ELEVEN + 1;
+    }
+
+    totals[size + 1] = total;
+    aceAsElevenCounts[size + 1] = aceAsElevenCount;
+    aceAsOneCounts[size + 1] = aceAsOneCount;
+  }
+
+  /**
+   * Helper method that lists the cards of the sequence.
+   * @param size Number of cards of the sequence
+   * @return The cards, separated by spaces
+   */
+  private static String sequenceToString(int size) {
+    StringBuilder sequence = new StringBuilder();
+    for (int c = 0; c < size; c++) {
+      if (c > 0)
+        sequence.append(' ');
+      sequence.append(cards[c]);
+    }
+
+    return sequence.toString();
+  }
+}
@@ -0,0 +1,187 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * HandLog reads a log written by the HandRecorder one record at a time. The
+ * file is memory-mapped in windows of a fixed size as the reader moves through
+ * it, so logs of hundreds of millions of hands can be streamed without
+ * loading them into memory. Reading a record allocates nothing.
+ *
+ * @author Aimee Shao
+ */
+public class HandLog implements Closeable {
+
+  // Size of each mapped window, a multiple of the record size
+  private static final long WINDOW_SIZE = 1L << 26;
+
+  // Errors when opening
+  private static final String ERROR_NOT_LOG = "%s is not a hand history";
+
+  private FileChannel channel; // file the log is read from
+  private long size; // size of the file, rounded down to whole records
+  private long windowStart; // position in the file of the mapped window
+  private MappedByteBuffer window; // part of the file being read
+
+  // fields of the current record
+  private int type;
+  private int seat;
+  private int hand;
+  private long value;
+  private long seed; // seed of the current round
+
+  /**
+   * Constructor for the log, checking the file's header.
+   * @param file File holding the log
+   * @throws IOException If the file cannot be read or is not a hand history
+   */
+  HandLog(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    size = channel.size() - channel.size() % HandRecorder.RECORD_SIZE;
+
+    if (size < HandRecorder.RECORD_SIZE) {
+      channel.close();
+      throw new IOException(String.format(ERROR_NOT_LOG, file));
+    }
+
+    map(0);
+    if (window.getInt() != HandRecorder.MAGIC
+        || window.getShort() != HandRecorder.VERSION) {
+      channel.close();
+      throw new IOException(String.format(ERROR_NOT_LOG, file));
+    }
+    window.getShort(); // reserved
+  }
+
+  /**
+   * Moves to the next record. A ROUND record is read together with the seed
+   * that follows it.
+   * @return false if there are no records left
+   * @throws UncheckedIOException If the file cannot be read
+   */
+  public boolean next() {
+    if (!hasWord())
+      return false;
+
+    long word = window.getLong();
+    type = (int) (word >>> HandRecorder.TYPE_SHIFT);
+    seat = (int) (word >>> HandRecorder.SEAT_SHIFT) & 0xFF;
+    value = word & HandRecorder.VALUE_MASK;
+    hand = 0;
+
+    if (type != HandRecorder.ROUND) {
+      hand = (int) (value >>> HandRecorder.HAND_SHIFT);
+      value &= (1L << HandRecorder.HAND_SHIFT) - 1;
+    } else {
+      if (!hasWord())
+        return false; // log was cut off in the middle of the record
+
+      seed = window.getLong();
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the type of the current record.
+   * @return ROUND, CARD, ACTION or RESULT
+   */
+  public int getType() {
+    return type;
+  }
+
+  /**
+   * Returns the seat of the current record.
+   * @return Seat, 0 for the dealer
+   */
+  public int getSeat() {
+    return seat;
+  }
+
+  /**
+   * Returns the index of the seat's hand of the current record.
+   * @return Index of the hand, above 0 only after splitting
+   */
+  public int getHand() {
+    return hand;
+  }
+
+  /**
+   * Returns the value of the current record: the round number, the card
+   * number or the action.
+   * @return Value of the record
+   */
+  public long getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the total of the current RESULT record.
+   * @return Final total of the seat
+   */
+  public int getTotal() {
+    return (int) (value >>> HandRecorder.TOTAL_SHIFT);
+  }
+
+  /**
+   * Returns the outcome of the current RESULT record.
+   * @return One of RoundResult's outcomes, or NO_OUTCOME for the dealer
+   */
+  public int getOutcome() {
+    return (int) (value & 0xFF);
+  }
+
+  /**
+   * Returns the seed of the game the current round was played in.
+   * @return Seed of the last ROUND record
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Closes the file.
+   * @return None.
+   * @throws IOException If the file cannot be closed
+   */
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Helper method that checks whether another word can be read, mapping the
+   * next window once the current one is used up.
+   * @return false if the end of the log was reached
+   */
+  private boolean hasWord() {
+    if (window.hasRemaining())
+      return true;
+
+    long next = windowStart + window.limit();
+    if (next >= size)
+      return false;
+
+    map(next);
+    return true;
+  }
+
+  /**
+   * Helper method that maps the window starting at a position.
+   * @param start Position in the file, a multiple of the record size
+   * @return None.
+   * @throws UncheckedIOException If the file cannot be mapped
+   */
+  private void map(long start) {
+    try {
+      window = channel.map(FileChannel.MapMode.READ_ONLY, start
+          , Math.min(WINDOW_SIZE, size - start));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    windowStart = start;
+  }
+}
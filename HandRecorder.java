@@ -0,0 +1,193 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * HandRecorder appends the history of every round to a compact binary log, so
+ * games can be audited and replayed later. Records are collected in a buffer
+ * and written to the file in batches.
+ *
+ * File format: a header word of the magic number and the format version,
+ * followed by records of one 8 byte word each. The top byte of a record is
+ * its type, the next byte the seat (0 for the dealer) and the low 6 bytes its
+ * value. Except in a ROUND record, the top 2 bytes of the value are the index
+ * of the seat's hand, which is above 0 only after splitting. A round starts
+ * with a ROUND record, whose value is the number of the round, followed by a
+ * word holding the seed of the game. Then come the CARD records of the cards
+ * dealt, the ACTION records of what the players chose, and the RESULT records
+ * of the dealer's and every hand's total.
+ *
+ * @author Aimee Shao
+ */
+public class HandRecorder implements Closeable {
+
+  // Header of the file
+  static final int MAGIC = 0x424A484C; // "BJHL"
+  static final short VERSION = 2;
+  static final int RECORD_SIZE = Long.BYTES;
+
+  // Types of records
+  static final int ROUND = 1;
+  static final int CARD = 2;
+  static final int ACTION = 3;
+  static final int RESULT = 4;
+
+  // Actions of a player besides Policy's actions
+  static final int HINT = Policy.NUM_OF_ACTIONS;
+  static final int INSURANCE = HINT + 1;
+
+  // Outcome of the dealer's RESULT record, who has no outcome
+  static final int NO_OUTCOME = 0xFF;
+
+  // Position of the fields in a record
+  static final int TYPE_SHIFT = 56;
+  static final int SEAT_SHIFT = 48;
+  static final long VALUE_MASK = (1L << SEAT_SHIFT) - 1;
+  static final int HAND_SHIFT = 32; // hand above the rest of the value
+  static final int TOTAL_SHIFT = 8; // total of a RESULT above its outcome
+
+  // Size of the buffer collecting records before they are written
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private FileChannel channel; // file the log is written to
+  private ByteBuffer buffer; // records not written yet
+  private long seed; // seed of the game, recorded with every round
+  private long numRounds = 0; // number of rounds recorded
+
+  /**
+   * Constructor for the recorder, replacing the file if it exists.
+   * @param file File to write the log to
+   * @param seed Seed of the game being recorded
+   * @throws IOException If the file cannot be written
+   */
+  HandRecorder(Path file, long seed) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.CREATE
+        , StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    this.seed = seed;
+
+    buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+  }
+
+  /**
+   * Records the start of a round.
+   * @return None.
+   */
+  public void startRound() {
+    startRound(numRounds + 1);
+  }
+
+  /**
+   * Records the start of a round with the given number, such as a round of
+   * a game whose rounds can be dealt on their own.
+   * @param round Number of the round, from 1
+   * @return None.
+   */
+  public void startRound(long round) {
+    numRounds += 1;
+    put(ROUND, 0, round);
+    put(seed);
+  }
+
+  /**
+   * Records a card dealt to a hand of a seat.
+   * @param seat Seat the card was dealt to, 0 for the dealer
+   * @param hand Index of the seat's hand
+   * @param number Number 1-13 of the card
+   * @return None.
+   */
+  public void recordCard(int seat, int hand, int number) {
+    put(CARD, seat, ((long) hand << HAND_SHIFT) | number);
+  }
+
+  /**
+   * Records what a player chose to do with a hand.
+   * @param seat Seat of the player
+   * @param hand Index of the player's hand
+   * @param action One of Policy's actions, HINT or INSURANCE
+   * @return None.
+   */
+  public void recordAction(int seat, int hand, int action) {
+    put(ACTION, seat, ((long) hand << HAND_SHIFT) | action);
+  }
+
+  /**
+   * Records the final total of a hand of a seat and its outcome.
+   * @param seat Seat of the player, 0 for the dealer
+   * @param hand Index of the seat's hand
+   * @param total Final total
+   * @param outcome One of RoundResult's outcomes, or NO_OUTCOME for the dealer
+   * @return None.
+   */
+  public void recordResult(int seat, int hand, int total, int outcome) {
+    put(RESULT, seat, ((long) hand << HAND_SHIFT)
+        | ((long) total << TOTAL_SHIFT) | outcome);
+  }
+
+  /**
+   * Returns the number of rounds recorded.
+   * @return Number of rounds
+   */
+  public long getNumRounds() {
+    return numRounds;
+  }
+
+  /**
+   * Writes the buffered records to the file.
+   * @return None.
+   * @throws UncheckedIOException If the file cannot be written
+   */
+  public void flush() {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Writes the buffered records and closes the file.
+   * @return None.
+   * @throws UncheckedIOException If the file cannot be written
+   */
+  public void close() {
+    flush();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Helper method that buffers a record.
+   * @param type Type of the record
+   * @param seat Seat of the record
+   * @param value Value of the record
+   * @return None.
+   */
+  private void put(int type, int seat, long value) {
+    put(((long) type << TYPE_SHIFT) | ((long) seat << SEAT_SHIFT)
+        | (value & VALUE_MASK));
+  }
+
+  /**
+   * Helper method that buffers a word, writing the buffer when it is full.
+   * @param word The word to buffer
+   * @return None.
+   */
+  private void put(long word) {
+    if (!buffer.hasRemaining())
+      flush();
+
+    buffer.putLong(word);
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * HandReplay streams through a hand history and prints every round the way it
+ * was played. While replaying it adds up the recorded cards of every seat
+ * again and reports any total that does not match the recorded result.
+ *
+ * @author Aimee Shao
+ */
+public class HandReplay {
+
+  // Strings for the replayed rounds
+  private static final String ROUND_STR = "Round %d of seed %d:\n";
+  private static final String DEALER_CARD_STR = "Dealer was dealt a %s.\n";
+  private static final String PLAYER_CARD_STR = "Player %d was dealt a %s.\n";
+  private static final String SPLIT_CARD_STR = "Player %d was dealt a %s on"
+      + " hand %d.\n";
+  private static final String ACTION_STR = "Player %d chose to %s.\n";
+  private static final String DEALER_TOTAL_STR = "Dealer has a total of %d.\n";
+  private static final String PLAYER_STR = "Player %d has a total of %d, so"
+      + " he ";
+  private static final String MISMATCH_STR = String.format("%s\n"
+      , "Seat %d's cards add up to %d, not the recorded %d.");
+  private static final String SUMMARY_STR = String.format("%s\n"
+      , "Replayed %d round(s) with %d mismatched total(s).");
+
+  // Strings of the actions, indexed by action
+  private static final String[] ACTION_STRS = {"hit", "stay", "double"
+      , "split", "surrender", "receive a hint", "take insurance"};
+
+  // Most seats a record can have
+  private static final int MAX_SEATS = 256;
+
+  private Output out; // where the rounds are printed
+  private Player[] seats; // hands of the dealer and players, added up again
+  private long numRounds = 0; // number of rounds replayed
+  private long numMismatches = 0; // number of totals that did not match
+
+  /**
+   * Constructor for the replay.
+   * @param out Where the rounds are printed
+   */
+  HandReplay(Output out) {
+    this.out = out;
+    seats = new Player[MAX_SEATS];
+    for (int s = 0; s < seats.length; s++) {
+      seats[s] = new Player();
+    }
+  }
+
+  /**
+   * Replays every round of the log.
+   * @param log Log to read the rounds from
+   * @return None.
+   */
+  public void run(HandLog log) {
+    while (log.next()) {
+      int seat = log.getSeat();
+      int hand = log.getHand();
+
+      switch (log.getType()) {
+        case HandRecorder.ROUND:
+          startRound(log.getValue(), log.getSeed());
+          break;
+        case HandRecorder.CARD:
+          int number = (int) log.getValue();
+          seats[seat].hitHand(hand, number);
+          if (seat == 0)
+            out.printf(DEALER_CARD_STR, Board.CARD_STRS[number]);
+          else if (seats[seat].getNumHands() > 1)
+            out.printf(SPLIT_CARD_STR, seat, Board.CARD_STRS[number], hand + 1);
+          else
+            out.printf(PLAYER_CARD_STR, seat, Board.CARD_STRS[number]);
+          break;
+        case HandRecorder.ACTION:
+          int action = (int) log.getValue();
+          if (action == Policy.SPLIT)
+            seats[seat].split(hand);
+          out.printf(ACTION_STR, seat, ACTION_STRS[action]);
+          break;
+        case HandRecorder.RESULT:
+          printResult(seat, hand, log.getTotal(), log.getOutcome());
+          break;
+        default:
+          break; // records of later versions are skipped
+      }
+    }
+
+    out.println();
+    out.printf(SUMMARY_STR, numRounds, numMismatches);
+    out.flush();
+  }
+
+  /**
+   * Returns the number of totals that did not match the recorded cards.
+   * @return Number of mismatched totals
+   */
+  public long getNumMismatches() {
+    return numMismatches;
+  }
+
+  /**
+   * Helper method that starts replaying a new round.
+   * @param round Number of the round
+   * @param seed Seed of the game
+   * @return None.
+   */
+  private void startRound(long round, long seed) {
+    if (numRounds > 0)
+      out.println();
+
+    for (int s = 0; s < seats.length; s++) {
+      seats[s].reset();
+    }
+
+    numRounds += 1;
+    out.printf(ROUND_STR, round, seed);
+  }
+
+  /**
+   * Helper method that prints the result of a seat and checks its total.
+   * @param seat Seat of the result, 0 for the dealer
+   * @param hand Index of the seat's hand
+   * @param total Recorded total
+   * @param outcome Recorded outcome
+   * @return None.
+   */
+  private void printResult(int seat, int hand, int total, int outcome) {
+    if (seat == 0) {
+      out.printf(DEALER_TOTAL_STR, total);
+    } else {
+      out.printf(PLAYER_STR, seat, total);
+      out.println(Board.outcomeToString(outcome));
+    }
+
+    int replayed = seats[seat].getHand(hand).getTotal();
+    if (replayed != total) {
+      out.printf(MISMATCH_STR, seat, replayed, total);
+      numMismatches += 1;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+/**
+ * A bet policy that bets the Kelly fraction of the bankroll: the player's
+ * edge divided by the variance of a hand. The edge is estimated from the
+ * Hi-Lo true count, rising by about half a percent per true count from a
+ * house edge of half a percent. Without an edge the player bets the table
+ * minimum.
+ *
+ * The edge per true count is that of a real shoe, where every card left is
+ * equally likely to be drawn. The game's Shoe deals every card number left
+ * with equal chances whatever its count, so a high count, which means few
+ * low cards relative to tens and aces, does not favor the player as much as
+ * in a real shoe, and the bets are larger than the game's edge calls for.
+ *
+ * @author Aimee Shao
+ */
+public class KellyBet implements BetPolicy {
+
+  // Player's edge at a true count of 0, and how much each true count adds
+  private static final double BASE_EDGE = -0.005;
+  private static final double EDGE_PER_COUNT = 0.005;
+
+  // Variance of the amount won by a hand, for a bet of 1
+  private static final double HAND_VARIANCE = 1.33;
+
+  private final long minimum; // smallest bet of the table, in cents
+
+  /**
+   * Constructor for the policy.
+   * @param minimum Smallest bet of the table, in cents
+   */
+  KellyBet(long minimum) {
+    this.minimum = minimum;
+  }
+
+  /**
+   * Bets the Kelly fraction of the bankroll, or the minimum if that is more.
+   * @param bankroll Money the player has, in cents
+   * @param trueCount Hi-Lo true count of the shoe
+   * @return Bet in cents
+   */
+  public long bet(long bankroll, double trueCount) {
+    double edge = BASE_EDGE + EDGE_PER_COUNT * trueCount;
+    return Math.max(minimum, (long) (bankroll * edge / HAND_VARIANCE));
+  }
+}
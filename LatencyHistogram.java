@@ -0,0 +1,101 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram counts durations in buckets that double in width, so any
+ * duration from a nanosecond to centuries fits in 64 buckets. Recording is
+ * lock-free and safe from any number of threads, and percentiles are read to
+ * within a factor of two.
+ *
+ * @author Aimee Shao
+ */
+public class LatencyHistogram {
+
+  // Number of buckets; bucket b counts durations below 2^b nanoseconds
+  private static final int NUM_OF_BUCKETS = Long.SIZE;
+
+  // Strings for the snapshot
+  private static final String SNAPSHOT_STR = "%d, mean %.1f us, p50 < %.1f us"
+      + ", p99 < %.1f us, max < %.1f us";
+  private static final double NANOS_PER_MICRO = 1000.0;
+
+  private final AtomicLongArray buckets; // count of durations in each bucket
+  private final LongAdder totalNanos; // sum of every duration
+
+  /**
+   * Default constructor for an empty histogram.
+   */
+  LatencyHistogram() {
+    buckets = new AtomicLongArray(NUM_OF_BUCKETS);
+    totalNanos = new LongAdder();
+  }
+
+  /**
+   * Counts a duration.
+   * @param nanos The duration in nanoseconds
+   * @return None.
+   */
+  public void record(long nanos) {
+    int bucket = NUM_OF_BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 0));
+    buckets.getAndIncrement(Math.min(bucket, NUM_OF_BUCKETS - 1));
+    totalNanos.add(nanos);
+  }
+
+  /**
+   * Forgets every duration counted so far. Durations counted at the same
+   * time on other threads may be kept or forgotten.
+   * @return None.
+   */
+  public void reset() {
+    for (int b = 0; b < NUM_OF_BUCKETS; b++) {
+      buckets.set(b, 0);
+    }
+    totalNanos.reset();
+  }
+
+  /**
+   * Returns the number of durations counted.
+   * @return Number of durations
+   */
+  public long getCount() {
+    long count = 0;
+    for (int b = 0; b < NUM_OF_BUCKETS; b++) {
+      count += buckets.get(b);
+    }
+
+    return count;
+  }
+
+  /**
+   * Returns an upper bound of a percentile of the durations.
+   * @param percent The percentile, 0-100
+   * @return Upper bound in nanoseconds, 0 if nothing was counted
+   */
+  public long getPercentile(double percent) {
+    long count = getCount();
+    long rank = (long) Math.ceil(count * percent / 100);
+    long seen = 0;
+
+    for (int b = 0; b < NUM_OF_BUCKETS; b++) {
+      seen += buckets.get(b);
+      if (seen >= rank && seen > 0)
+        return b < NUM_OF_BUCKETS - 1 ? 1L << b : Long.MAX_VALUE;
+    }
+
+    return 0;
+  }
+
+  /**
+   * Returns the count, mean and percentiles of the durations as a string.
+   * @return The snapshot
+   */
+  public String toString() {
+    long count = getCount();
+    double mean = count == 0 ? 0 : (double) totalNanos.sum() / count;
+
+    return String.format(SNAPSHOT_STR, count, mean / NANOS_PER_MICRO
+        , getPercentile(50) / NANOS_PER_MICRO
+        , getPercentile(99) / NANOS_PER_MICRO
+        , getPercentile(100) / NANOS_PER_MICRO);
+  }
+}
@@ -0,0 +1,139 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadGenerator measures a TableServer by playing many tables at once, each
+ * on its own thread. Every table hits until its total is at least 17 and
+ * plays a number of rounds before quitting.
+ *
+ * @author Aimee Shao
+ */
+public class LoadGenerator {
+
+  // Total at which the generated players stay
+  private static final int STAY_AT = 17;
+
+  // Start of the lines the generator reads
+  private static final String TOTAL_PREFIX = Board.PLAYER_TOTAL_STR.substring(0
+      , Board.PLAYER_TOTAL_STR.indexOf('%'));
+  private static final String DEALER_PREFIX = Board.DEALER_TOTAL_STR.substring(
+      0, Board.DEALER_TOTAL_STR.indexOf('%'));
+
+  // Strings for the report
+  private static final String REPORT_STR = String.format("%s\n%s\n%s\n"
+      , "Played %d rounds at %d tables (%d failed) in %.3f seconds."
+      , "Throughput: %.0f rounds/sec, %.0f decisions/sec."
+      , "Mean response time: %.3f ms.");
+
+  private String host; // host of the server
+  private int port; // port of the server
+  private int numTables; // number of tables played at once
+  private int rounds; // rounds played at each table
+
+  // Totals over all tables
+  private LongAdder roundsPlayed = new LongAdder();
+  private LongAdder decisions = new LongAdder();
+  private LongAdder responseNanos = new LongAdder();
+  private LongAdder failedTables = new LongAdder();
+
+  /**
+   * Constructor for the load generator.
+   * @param port Port of the server on this machine
+   * @param numTables Number of tables played at once
+   * @param rounds Rounds played at each table
+   */
+  LoadGenerator(int port, int numTables, int rounds) {
+    this.host = InetAddress.getLoopbackAddress().getHostAddress();
+    this.port = port;
+    this.numTables = numTables;
+    this.rounds = rounds;
+  }
+
+  /**
+   * Plays all the tables and returns the report.
+   * @return The report of the run
+   * @throws InterruptedException If interrupted while waiting for the tables
+   */
+  public String run() throws InterruptedException {
+    ExecutorService tables = Threads.newPerTaskExecutor("load");
+    long start = System.nanoTime();
+
+    for (int t = 0; t < numTables; t++) {
+      tables.execute(this::playTable);
+    }
+
+    tables.shutdown();
+    tables.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+    double seconds = (System.nanoTime() - start) / 1e9;
+    long numDecisions = Math.max(decisions.sum(), 1);
+    return String.format(REPORT_STR, roundsPlayed.sum(), numTables
+        , failedTables.sum(), seconds, roundsPlayed.sum() / seconds
+        , decisions.sum() / seconds, responseNanos.sum() / 1e6 / numDecisions);
+  }
+
+  /**
+   * Connects to the server and plays rounds at one table.
+   * @return None.
+   */
+  private void playTable() {
+    try (Socket socket = new Socket(host, port)) {
+      socket.setTcpNoDelay(true);
+      BufferedReader in = new BufferedReader(new InputStreamReader(
+          socket.getInputStream(), StandardCharsets.UTF_8));
+      OutputStream out = socket.getOutputStream();
+
+      int total = 0; // last total the server sent
+      int played = 0; // rounds finished at this table
+      long sent = System.nanoTime(); // when the last answer was sent
+
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.startsWith(TOTAL_PREFIX)) {
+          total = parseTotal(line);
+        } else if (line.startsWith(DEALER_PREFIX)) {
+          played += 1;
+          roundsPlayed.increment();
+        } else if (line.equals(Blackjack.HIT_STAY_STR)) {
+          long now = System.nanoTime();
+          responseNanos.add(now - sent);
+          decisions.increment();
+
+          String answer = played == rounds ? TableServer.QUIT_STR
+              : total < STAY_AT ? Blackjack.HIT_STR : Blackjack.STAY_STR;
+          out.write((answer + "\n").getBytes(StandardCharsets.UTF_8));
+          out.flush();
+          sent = System.nanoTime();
+        }
+      }
+    } catch (IOException e) {
+      failedTables.increment();
+    }
+  }
+
+  /**
+   * Helper method that reads the total from a line sent by the server.
+   * @param line Line starting with the total
+   * @return The total
+   */
+  private static int parseTotal(String line) {
+    int total = 0;
+
+    for (int i = TOTAL_PREFIX.length(); i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c < '0' || c > '9')
+        break;
+      total = total * 10 + (c - '0');
+    }
+
+    return total;
+  }
+}
@@ -0,0 +1,112 @@
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics counts what the game does under load: cards dealt, reshuffles,
+ * busts, aces changed from 11 to 1, and how long hints and rounds take. The
+ * counters are striped, so threads playing at once do not fight over them,
+ * and the latency histograms are lock-free.
+ *
+ * Metrics are off unless the blackjack.metrics system property is true when
+ * the class is first used. ENABLED is read from the property, so it is not a
+ * compile-time constant, but it is a static final field that never changes
+ * once the class is loaded: the JIT folds the "if (Metrics.ENABLED)" checks
+ * into constants and drops the blocks when it is false, so compiled code
+ * pays nothing for them.
+ *
+ * The counts can be reset, so rounds played only to warm up are left out.
+ *
+ * @author Aimee Shao
+ */
+public class Metrics {
+
+  // System property that turns the metrics on
+  static final String ENABLED_PROPERTY = "blackjack.metrics";
+
+  // Whether metrics are collected; fixed when the class is loaded
+  static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+  // Counters
+  static final LongAdder CARDS_DEALT = new LongAdder();
+  static final LongAdder RESHUFFLES = new LongAdder();
+  static final LongAdder HANDS = new LongAdder(); // hands played to the end,
+                                                  // the dealer's included
+  static final LongAdder BUSTS = new LongAdder();
+  static final LongAdder ACE_DEMOTIONS = new LongAdder();
+
+  // Latencies
+  static final LatencyHistogram HINT_LATENCY = new LatencyHistogram();
+  static final LatencyHistogram ROUND_DURATION = new LatencyHistogram();
+
+  // Strings of the dump
+  private static final String DUMP_STR = String.format(
+      "%s\n%s\n%s\n%s\n%s\n%s\n%s\n%s\n"
+      , "Metrics after %.1f seconds:"
+      , "  cards dealt     %d"
+      , "  reshuffles      %d"
+      , "  hands           %d"
+      , "  busts           %d  (%.2f%% of hands)"
+      , "  ace demotions   %d"
+      , "  hint latency    %s"
+      , "  round duration  %s");
+
+  // Name of the thread dumping the metrics
+  private static final String THREAD_NAME = "metrics";
+
+  // Time the metrics started or were reset, to show how long they were
+  // collected for
+  private static volatile long startNanos = System.nanoTime();
+
+  /**
+   * Writes the current value of every metric.
+   * @param out Where the metrics are written
+   * @return None.
+   */
+  public static void dump(PrintStream out) {
+    long hands = HANDS.sum();
+    long busts = BUSTS.sum();
+
+    out.printf(DUMP_STR, (System.nanoTime() - startNanos) / 1e9
+        , CARDS_DEALT.sum(), RESHUFFLES.sum(), hands, busts
+        , hands == 0 ? 0 : 100.0 * busts / hands, ACE_DEMOTIONS.sum()
+        , HINT_LATENCY, ROUND_DURATION);
+    out.flush();
+  }
+
+  /**
+   * Sets every metric back to zero and restarts the time they were collected
+   * for.
+   * @return None.
+   */
+  public static void reset() {
+    CARDS_DEALT.reset();
+    RESHUFFLES.reset();
+    HANDS.reset();
+    BUSTS.reset();
+    ACE_DEMOTIONS.reset();
+    HINT_LATENCY.reset();
+    ROUND_DURATION.reset();
+    startNanos = System.nanoTime();
+  }
+
+  /**
+   * Starts writing the metrics every so often on a background thread, which
+   * stops when the program does.
+   * @param out Where the metrics are written
+   * @param seconds Seconds between dumps
+   * @return None.
+   */
+  public static void startDumping(PrintStream out, int seconds) {
+    ScheduledExecutorService timer =
+        Executors.newSingleThreadScheduledExecutor(task -> {
+          Thread thread = new Thread(task, THREAD_NAME);
+          thread.setDaemon(true);
+          return thread;
+        });
+    timer.scheduleAtFixedRate(() -> dump(out), seconds, seconds
+        , TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,27 @@
+/**
+ * NullOutput drops everything written to it. It is used when nobody is
+ * watching, such as in simulations.
+ *
+ * @author Aimee Shao
+ */
+public class NullOutput implements Output {
+
+  public void print(String str) {
+  }
+
+  public void printf(String format, Object... args) {
+  }
+
+  public void println(String str) {
+  }
+
+  public void println() {
+  }
+
+  public void flush() {
+  }
+
+  public boolean isWatched() {
+    return false;
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * Output is where the board and the game write what the players see. Keeping
+ * it separate from the game logic lets the text be buffered, sent somewhere
+ * else, or dropped when nobody is watching.
+ *
+ * @author Aimee Shao
+ */
+public interface Output {
+
+  /**
+   * Writes a string.
+   * @param str String to write
+   * @return None.
+   */
+  void print(String str);
+
+  /**
+   * Writes a formatted string.
+   * @param format Format string
+   * @param args Arguments of the format string
+   * @return None.
+   */
+  void printf(String format, Object... args);
+
+  /**
+   * Writes a string followed by a new line.
+   * @param str String to write
+   * @return None.
+   */
+  void println(String str);
+
+  /**
+   * Writes a new line.
+   * @return None.
+   */
+  void println();
+
+  /**
+   * Sends everything written so far to where it is going. Called once before
+   * every prompt.
+   * @return None.
+   */
+  void flush();
+
+  /**
+   * Returns whether anybody sees what is written. If not, callers on hot
+   * paths may skip formatting altogether.
+   * @return true if the output is seen
+   */
+  default boolean isWatched() {
+    return true;
+  }
+}
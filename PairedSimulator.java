@@ -0,0 +1,261 @@
+/**
+ * The PairedSimulator compares policies by playing them on the same rounds.
+ * Every policy has a board of its own, and all boards deal from one shared
+ * CardStream, so the n-th card of a round is the same for every policy and
+ * each card is generated once however many policies are compared. Rounds
+ * where the policies play alike then win or lose alike, and the difference
+ * between two policies is measured round by round with a much smaller
+ * variance than between two independent simulations.
+ *
+ * Rounds are played until the difference of every policy from the first one
+ * is clearly above or below zero at the given confidence, or the most rounds
+ * are played. Looking at the differences again and again and stopping the
+ * first time they look clear would be wrong more often than the confidence
+ * says, so the differences are only looked at after 65,536 rounds and then
+ * each time the rounds played double, and the chance of being wrong is split
+ * evenly between these looks: every look uses a wider interval, so the
+ * chance of stopping on a wrong sign at any of them stays within the
+ * confidence. The payoffs are those of a seat per round, with the hands it
+ * split into added together.
+ *
+ * The players' bankrolls never run low, so every policy is always offered the
+ * same actions and only the policies differ.
+ *
+ * @author Aimee Shao
+ */
+public class PairedSimulator {
+
+  // Rounds played before first checking whether the differences are clear;
+  // they are checked again each time the rounds played double
+  private static final int CHECK_ROUNDS = 1 << 16;
+
+  // Strings of the report
+  private static final String HEADER_STR = String.format("%s\n%s\n"
+      , "Compared %d policies over %d rounds in %.3f seconds,"
+      , "%s %d%% confidence over %d look(s), each +/- %.3f standard errors.");
+  private static final String DECIDED_STR = "stopped at";
+  private static final String UNDECIDED_STR = "undecided at";
+  private static final String VALUES_STR = String.format("%s\n%s\n"
+      , "Expected value per round, adding up a seat's split hands:"
+      , "  policy                expected value");
+  private static final String VALUE_STR = "  %-20s  %+.4f +/- %.4f\n";
+  private static final String DIFFERENCES_STR = String.format("%s\n%s\n"
+      , "Difference from %s, on the same cards:"
+      , "  policy                difference     paired SE  independent SE"
+      + "  rounds saved");
+  private static final String DIFFERENCE_STR =
+      "  %-20s  %+.4f +/- %.4f  %9.5f  %14.5f  %11.1fx\n";
+  private static final String SAME_PLAY_STR = "  %-20s  same play on every"
+      + " round\n";
+
+  private Policy[] policies; // policies compared, the first one the baseline
+  private String[] names; // names of the policies in the report
+  private Board[] boards; // board of each policy
+  private CardStream stream; // cards shared by the boards
+
+  private RunningStats[] values; // payoff of each policy per round
+  private RunningStats[] differences; // payoff of each policy minus the
+                                      // baseline's per round, for 1 and up
+  private double z = 0; // z value of each look of the last run
+  private int confidence = 0; // confidence of the last run, in percent
+  private int numLooks = 0; // looks the last run could take at most
+  private boolean decided = false; // whether the last run was decided
+  private long elapsedNanos = 0; // time the rounds took
+
+  /**
+   * Constructor for the simulator.
+   * @param rules Rules of the table
+   * @param policies Policies to compare, at least two; the others are
+   *                 compared to the first one
+   * @param names Names of the policies in the report
+   * @param rand Random generator used in dealing cards
+   */
+  PairedSimulator(Rules rules, Policy[] policies, String[] names
+      , CardRandom rand) {
+    this.policies = policies;
+    this.names = names;
+    stream = new CardStream(rules, rand);
+
+    boards = new Board[policies.length];
+    values = new RunningStats[policies.length];
+    differences = new RunningStats[policies.length];
+    for (int k = 0; k < policies.length; k++) {
+      boards[k] = new Board(1, rules, new NullOutput(), rand);
+      boards[k].setCardStream(stream);
+      boards[k].setBankrolls(Player.UNLIMITED_BANKROLL);
+      values[k] = new RunningStats();
+      differences[k] = new RunningStats();
+    }
+  }
+
+  /**
+   * Plays rounds until every policy's difference from the first one is
+   * clear at the given confidence, or the most rounds are played. The
+   * differences are looked at after CHECK_ROUNDS rounds, each time the
+   * rounds played double and after the most rounds, and each look gets an
+   * even share of the chance of being wrong.
+   * @param maxRounds Most rounds to play
+   * @param confidence Confidence the differences must have over every look,
+   *                   in percent
+   * @return true if every difference became clear
+   */
+  public boolean run(long maxRounds, int confidence) {
+    this.confidence = confidence;
+    numLooks = 1;
+    for (long look = CHECK_ROUNDS; look < maxRounds; look *= 2) {
+      numLooks += 1;
+    }
+    z = zOf(100 - (100.0 - confidence) / numLooks);
+    decided = false;
+    long start = System.nanoTime();
+
+    long played = 0;
+    long nextLook = Math.min(CHECK_ROUNDS, maxRounds);
+    while (played < maxRounds && !decided) {
+      for (; played < nextLook; played++) {
+        playRound();
+      }
+      nextLook = Math.min(2 * nextLook, maxRounds);
+      decided = isClear();
+    }
+
+    elapsedNanos += System.nanoTime() - start;
+    return decided;
+  }
+
+  /**
+   * Returns the payoff statistics of a policy.
+   * @param k Index of the policy
+   * @return Payoff per round
+   */
+  public RunningStats getValue(int k) {
+    return values[k];
+  }
+
+  /**
+   * Returns the statistics of a policy's payoff minus the first policy's,
+   * paired round by round.
+   * @param k Index of the policy, from 1
+   * @return Difference of the payoffs per round
+   */
+  public RunningStats getDifference(int k) {
+    return differences[k];
+  }
+
+  /**
+   * Returns the report of the comparison: each policy's expected value and
+   * each policy's difference from the first one, with its standard error
+   * paired on the same cards, the standard error independent simulations of
+   * the same length would have had, and how many times as many rounds they
+   * would have needed for the paired error. The intervals are those of the
+   * looks, wide enough for the confidence over all of them.
+   * @return The report
+   */
+  public String toString() {
+    StringBuilder report = new StringBuilder();
+    report.append(String.format(HEADER_STR, policies.length
+        , values[0].getCount(), elapsedNanos / 1e9
+        , decided ? DECIDED_STR : UNDECIDED_STR, confidence, numLooks, z));
+
+    report.append(VALUES_STR);
+    for (int k = 0; k < policies.length; k++) {
+      report.append(String.format(VALUE_STR, names[k], values[k].getMean()
+          , z * standardError(values[k])));
+    }
+
+    report.append(String.format(DIFFERENCES_STR, names[0]));
+    for (int k = 1; k < policies.length; k++) {
+      double paired = standardError(differences[k]);
+      if (paired == 0) {
+        report.append(String.format(SAME_PLAY_STR, names[k]));
+        continue;
+      }
+
+      double independent = Math.hypot(standardError(values[k])
+          , standardError(values[0]));
+      report.append(String.format(DIFFERENCE_STR, names[k]
+          , differences[k].getMean(), z * paired, paired, independent
+          , independent * independent / paired / paired));
+    }
+
+    return report.toString();
+  }
+
+  /**
+   * Helper method that plays one round with every policy on the same cards.
+   * @return None.
+   */
+  private void playRound() {
+    stream.startRound();
+
+    double baseline = 0;
+    for (int k = 0; k < policies.length; k++) {
+      double payoff = SimulationResult.payoffOf(
+          boards[k].playRound(policies[k]), 1);
+      values[k].add(payoff);
+      if (k == 0)
+        baseline = payoff;
+      else
+        differences[k].add(payoff - baseline);
+    }
+  }
+
+  /**
+   * Helper method that checks whether every difference from the first
+   * policy is above or below zero by more than its interval at this look.
+   * @return true if every difference is clear
+   */
+  private boolean isClear() {
+    for (int k = 1; k < policies.length; k++) {
+      double error = z * standardError(differences[k]);
+      if (error == 0 || Math.abs(differences[k].getMean()) <= error)
+        return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Helper method that finds the standard error of a mean.
+   * @param stats Statistics of the values
+   * @return Standard error, 0 if there are fewer than 2 values
+   */
+  private static double standardError(RunningStats stats) {
+    long count = stats.getCount();
+    return count < 2 ? 0 : Math.sqrt(stats.getVariance() / count);
+  }
+
+  /**
+   * Helper method that finds the z value of a two-sided confidence interval
+   * by bisecting the normal distribution's upper tail.
+   * @param confidence Confidence of the interval, in percent
+   * @return The z value
+   */
+  static double zOf(double confidence) {
+    double tail = (1 - confidence / 100) / 2;
+    double low = 0;
+    double high = 40;
+    for (int i = 0; i < 100; i++) {
+      double mid = (low + high) / 2;
+      if (upperTail(mid) > tail)
+        low = mid;
+      else
+        high = mid;
+    }
+
+    return (low + high) / 2;
+  }
+
+  /**
+   * Helper method that finds the chance a standard normal value is above x,
+   * for x of 0 and up, with Abramowitz and Stegun's approximation 26.2.17.
+   * @param x The value
+   * @return Chance of being above it
+   */
+  private static double upperTail(double x) {
+    double t = 1 / (1 + 0.2316419 * x);
+    double poly = t * (0.319381530 + t * (-0.356563782 + t * (1.781477937
+        + t * (-1.821255978 + t * 1.330274429))));
+    return Math.exp(-x * x / 2) / Math.sqrt(2 * Math.PI) * poly;
+  }
+}
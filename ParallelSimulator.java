@@ -0,0 +1,273 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The ParallelSimulator splits a simulation across several threads. The
+ * rounds are split into chunks of a fixed size, and each chunk is played on
+ * its own board with its own random generator split from one master seed.
+ * Since the chunks do not depend on the number of threads, the results for
+ * a seed are the same no matter how many threads are used.
+ *
+ * The players start every session with the same bankroll. A chunk is a whole
+ * number of sessions, so no session is split between chunks and the sessions
+ * are the same for any number of threads. With sessions longer than a chunk,
+ * each chunk is one session and there are fewer chunks to share out.
+ *
+ * With counter-based rounds, every round is dealt from a shoe of its own
+ * keyed by the seed and the number of the round, so the chunks start at
+ * their first round directly and any range of rounds gives the same results
+ * as the same rounds of a longer run.
+ *
+ * When the rounds are recorded or published, the chunks are played one after
+ * another on one thread so they are written to the log or published in order.
+ *
+ * While the chunks are played, the calling thread can print partial reports.
+ * Every finished chunk puts its results on a lock-free queue, which the
+ * calling thread drains into a running total between reports. The final
+ * results are still merged in chunk order, so they do not depend on the order
+ * in which the chunks finished.
+ *
+ * @author Aimee Shao
+ */
+public class ParallelSimulator {
+
+  // Number of rounds played by each chunk, rounded up to whole sessions
+  private static final int CHUNK_ROUNDS = 1 << 16;
+
+  private int numPlayers; // number of players besides the dealer
+  private Rules rules; // rules of every table
+  private Policy policy; // decides when the players hit, shared by threads
+  private int numThreads; // number of threads to play on
+  private HandRecorder recorder = null; // records the rounds, if any
+  private GameEventPublisher events = null; // publishes the rounds, if any
+  private long firstRound = 0; // number of the first counter-based round,
+                               // or 0 if each chunk's shoe carries over
+  private BetPolicy betPolicy = new FlatBet(FlatBet.DEFAULT_UNIT); // shared
+  private long bankroll = Player.DEFAULT_BANKROLL; // of each player, in cents
+  private long sessionRounds = Simulator.DEFAULT_SESSION_ROUNDS; // rounds in
+                                                                 // a session
+  private Output progress = null; // where partial reports are printed, if any
+  private long progressNanos; // time between partial reports
+
+  /**
+   * Constructor for the parallel simulator.
+   * @param numPlayers Number of players besides the dealer
+   * @param rules Rules of every table
+   * @param policy Policy used by every player, must be safe to share
+   * @param numThreads Number of threads to play on
+   */
+  ParallelSimulator(int numPlayers, Rules rules, Policy policy
+      , int numThreads) {
+    this.numPlayers = numPlayers;
+    this.rules = rules;
+    this.policy = policy;
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Plays the given number of rounds and collects their results.
+   * @param rounds Number of rounds to play
+   * @param seed Master seed that every chunk's generator is split from
+   * @return Results of all the rounds
+   */
+  public SimulationResult run(long rounds, long seed) {
+    long sessionsPerChunk = Math.max(CHUNK_ROUNDS / sessionRounds, 1);
+    long chunkSize = sessionsPerChunk * sessionRounds;
+    int numChunks = (int) ((rounds + chunkSize - 1) / chunkSize);
+    ChunkTask[] chunks = new ChunkTask[numChunks];
+    ConcurrentLinkedQueue<SimulationResult> finished =
+        new ConcurrentLinkedQueue<>();
+
+    // split generators in chunk order so each chunk always gets the same one
+    CardRandom master = new CardRandom(seed);
+    for (int c = 0; c < numChunks; c++) {
+      long chunkRounds = Math.min(chunkSize, rounds - c * chunkSize);
+      chunks[c] = new ChunkTask(chunkRounds, master.split(), seed
+          , firstRound > 0 ? firstRound + c * chunkSize : 0
+          , finished);
+    }
+
+    long start = System.nanoTime();
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    try {
+      ForkJoinTask<Void> all = pool.submit(new RecursiveTask<Void>() {
+        protected Void compute() {
+          if (recorder != null || events != null) {
+            for (ChunkTask chunk : chunks) {
+              chunk.invoke();
+            }
+          } else {
+            invokeAll(chunks);
+          }
+          return null;
+        }
+      });
+
+      awaitWithProgress(all, finished);
+    } finally {
+      pool.shutdown();
+    }
+
+    // merge in chunk order
+    SimulationResult result = new SimulationResult(numPlayers);
+    result.setSessionRounds(sessionRounds);
+    for (ChunkTask chunk : chunks) {
+      result.merge(chunk.join());
+    }
+
+    result.setElapsedNanos(System.nanoTime() - start);
+    return result;
+  }
+
+  /**
+   * Sets the recorder that records every round played from now on.
+   * @param recorder Recorder of the rounds, or null to stop recording
+   * @return None.
+   */
+  public void setRecorder(HandRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Deals every round from a shoe of its own, keyed by the seed given to
+   * run and the number of the round, starting at the given round.
+   * @param firstRound Number of the first round played by run, from 1, or 0
+   *                   to play every chunk from a shoe that carries over
+   * @return None.
+   */
+  public void setFirstRound(long firstRound) {
+    this.firstRound = firstRound;
+  }
+
+  /**
+   * Sets the publisher that publishes the events of every round played from
+   * now on.
+   * @param events Publisher of the events, or null to stop publishing
+   * @return None.
+   */
+  public void setEvents(GameEventPublisher events) {
+    this.events = events;
+  }
+
+  /**
+   * Sets how the players bet and the bankroll they start every session with.
+   * @param betPolicy Policy deciding the bets, must be safe to share
+   * @param bankroll Money of each player, in cents
+   * @return None.
+   */
+  public void setBetting(BetPolicy betPolicy, long bankroll) {
+    this.betPolicy = betPolicy;
+    this.bankroll = bankroll;
+  }
+
+  /**
+   * Sets the most rounds in a session, after which the players start again
+   * from their bankrolls.
+   * @param sessionRounds Rounds in a session, at least 1
+   * @return None.
+   */
+  public void setSessionRounds(long sessionRounds) {
+    this.sessionRounds = sessionRounds;
+  }
+
+  /**
+   * Sets where partial reports are printed while the rounds are played.
+   * @param progress Where the reports are printed, or null for none
+   * @param seconds Seconds between the reports
+   * @return None.
+   */
+  public void setProgress(Output progress, int seconds) {
+    this.progress = progress;
+    progressNanos = TimeUnit.SECONDS.toNanos(seconds);
+  }
+
+  /**
+   * Helper method that waits for the chunks to be played, printing a partial
+   * report of the chunks finished so far every so often.
+   * @param all Task playing every chunk
+   * @param finished Results of the chunks finished since the last report
+   * @return None.
+   */
+  private void awaitWithProgress(ForkJoinTask<Void> all
+      , ConcurrentLinkedQueue<SimulationResult> finished) {
+    SimulationResult partial = new SimulationResult(numPlayers);
+
+    while (progress != null && !all.isDone()) {
+      try {
+        all.get(progressNanos, TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        SimulationResult chunk;
+        while ((chunk = finished.poll()) != null) {
+          partial.merge(chunk);
+        }
+
+        progress.print(partial.toPartialString());
+        progress.flush();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e) {
+        break; // join throws what the chunk threw
+      }
+    }
+
+    all.join();
+  }
+
+  /**
+   * Task that plays one chunk of rounds on its own board.
+   */
+  private class ChunkTask extends RecursiveTask<SimulationResult> {
+
+    // tasks are serializable but never serialized
+    private static final long serialVersionUID = 1L;
+
+    private long rounds; // number of rounds in the chunk
+    private CardRandom rand; // generator of the chunk's board
+    private long seed; // seed the counter-based rounds are keyed by
+    private long firstRound; // first counter-based round, or 0 for none
+    private ConcurrentLinkedQueue<SimulationResult> finished; // results of
+                                                             // played chunks
+
+    /**
+     * Constructor for the chunk.
+     * @param rounds Number of rounds in the chunk
+     * @param rand Random generator of the chunk's board
+     * @param seed Seed the counter-based rounds are keyed by
+     * @param firstRound Number of the chunk's first counter-based round, or
+     *                   0 for none
+     * @param finished Queue the results are put on once played
+     */
+    ChunkTask(long rounds, CardRandom rand, long seed, long firstRound
+        , ConcurrentLinkedQueue<SimulationResult> finished) {
+      this.rounds = rounds;
+      this.rand = rand;
+      this.seed = seed;
+      this.firstRound = firstRound;
+      this.finished = finished;
+    }
+
+    /**
+     * Plays the chunk's rounds.
+     * @return Results of the chunk
+     */
+    protected SimulationResult compute() {
+      Simulator simulator = new Simulator(numPlayers, rules, policy, rand);
+      simulator.setRecorder(recorder);
+      simulator.setEvents(events);
+      simulator.setBetting(betPolicy, bankroll);
+      simulator.setSessionRounds(sessionRounds);
+      if (firstRound > 0)
+        simulator.setCounterRounds(seed, firstRound);
+
+      SimulationResult result = simulator.run(rounds);
+      finished.offer(result);
+      return result;
+    }
+  }
+}
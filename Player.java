@@ -1,65 +1,327 @@
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 /**
  * This class helps create a player in blackjack which also includes the dealer.
- * A Player has a sum based on all the cards he/she has collected.
+ * A Player has a sum based on all the cards he/she has collected. After
+ * splitting, a player has several hands, which are played one at a time; the
+ * hand being played is the active hand. A player also has a bankroll and
+ * the bet of the current round, both in cents.
  *
  * @author Aimee Shao
  */
 public class Player {
 
-  private static final int BUST_NUM = 21;
+  static final int BUST_NUM = 21;
+  static final int MAX_HANDS = 4; // most hands a player can split into
+  static final long DEFAULT_BANKROLL = 100000; // $1000 in cents
+  // bankroll so large no game can use it up, in cents
+  static final long UNLIMITED_BANKROLL = Long.MAX_VALUE / 4;
   private static final int FACE_CARD_AMT = 10;
-  private static final int KING_AS_INT = 13;
-  private static final int ACE_AS_ELEVEN = 11;
 
-  private Hand hand; // contains the player's hand
-  private int aceAsElevenCount = 0; // number of aces considered as 11 in total
-  private int aceAsOneCount = 0; // number of aces considered as 1 in total
-  private int total = 0; // sum of cards in player's hand
+  private Hand[] hands; // the player's hands; only one unless split
+  private int numHands = 1; // number of hands in play
+  private int activeHand = 0; // index of the hand being played
+  private Hand hand; // the hand being played
+  private boolean surrendered = false; // whether the player gave up the round
+  private boolean insured = false; // whether the player took insurance
+  private long bankroll = DEFAULT_BANKROLL; // money of the player, in cents
+  private long bet = 0; // bet on each hand this round, in cents
 
   /**
    * Default constructor for the player.
    */
   Player() {
-    // initialize player's hand
-    hand = new Hand();
+    // initialize player's hands; all but the first are used only by splits
+    hands = new Hand[MAX_HANDS];
+    for (int h = 0; h < hands.length; h++) {
+      hands[h] = new Hand();
+    }
+    hand = hands[0];
   }
 
   /**
-   * Adds the new card to player's hand and total.
+   * Clears the player's hand and total so the player can play a new round.
+   * @return None.
+   */
+  public void reset() {
+    hand.clear();
+
+    // the other hands are only in use after splitting
+    if (numHands > 1) {
+      for (int h = 0; h < numHands; h++) {
+        hands[h].clear();
+      }
+
+      numHands = 1;
+      activeHand = 0;
+      hand = hands[0];
+    }
+
+    surrendered = false;
+    insured = false;
+  }
+
+  /**
+   * Adds the new card to player's active hand and total.
    * @param number Number of the new card the player was hit with
    * @return None.
    */
   public void hit(int number) {
-    // add number to hand
     hand.add(number);
+  }
+
+  /**
+   * Adds the new card to one of the player's hands.
+   * @param h Index of the hand
+   * @param number Number of the new card
+   * @return None.
+   */
+  public void hitHand(int h, int number) {
+    hands[h].add(number);
+  }
+
+  /**
+   * Splits one of the player's hands of two cards into two hands of one card
+   * each. The second card starts a new hand after the others.
+   * @param h Index of the hand to split
+   * @return Index of the new hand
+   */
+  public int split(int h) {
+    Hand first = hands[h];
+    int firstCard = first.getCard(0);
+    int secondCard = first.getCard(1);
+
+    first.clear();
+    first.add(firstCard);
+
+    Hand second = hands[numHands];
+    second.clear();
+    second.add(secondCard);
+
+    numHands += 1;
+    return numHands - 1;
+  }
+
+  /**
+   * Returns whether the active hand is a pair that can be split.
+   * @return true if the hand can be split
+   */
+  public boolean canSplit() {
+    return hand.getSize() == 2 && numHands < MAX_HANDS
+        && CompositionKey.valueOf(hand.getCard(0))
+        == CompositionKey.valueOf(hand.getCard(1));
+  }
+
+  /**
+   * Makes the next hand active, if the player has one left to play.
+   * @return false if there are no hands left to play
+   */
+  public boolean nextHand() {
+    if (activeHand + 1 >= numHands)
+      return false;
+
+    activeHand += 1;
+    hand = hands[activeHand];
+    return true;
+  }
+
+  /**
+   * Makes the last hand active, so the player has no hands left to play.
+   * @return None.
+   */
+  public void finishHands() {
+    activeHand = numHands - 1;
+    hand = hands[activeHand];
+  }
+
+  /**
+   * Returns the number of hands the player has.
+   * @return Number of hands
+   */
+  public int getNumHands() {
+    return numHands;
+  }
+
+  /**
+   * Returns the index of the hand being played.
+   * @return Index of the active hand
+   */
+  public int getActiveHand() {
+    return activeHand;
+  }
+
+  /**
+   * Returns one of the player's hands.
+   * @param h Index of the hand
+   * @return The hand
+   */
+  public Hand getHand(int h) {
+    return hands[h];
+  }
+
+  /**
+   * Doubles the bet on the active hand.
+   * @return None.
+   */
+  public void doubleDown() {
+    hand.setDoubled();
+  }
+
+  /**
+   * Gives up the round for half the bet back.
+   * @return None.
+   */
+  public void surrender() {
+    surrendered = true;
+  }
+
+  /**
+   * Returns whether the player gave up the round.
+   * @return true if surrendered
+   */
+  public boolean isSurrendered() {
+    return surrendered;
+  }
+
+  /**
+   * Takes insurance against the dealer having 21 with two cards.
+   * @return None.
+   */
+  public void insure() {
+    insured = true;
+  }
+
+  /**
+   * Returns whether the player took insurance.
+   * @return true if insured
+   */
+  public boolean isInsured() {
+    return insured;
+  }
+
+  /**
+   * Returns the money the player has.
+   * @return Bankroll in cents
+   */
+  public long getBankroll() {
+    return bankroll;
+  }
+
+  /**
+   * Sets the money the player has.
+   * @param bankroll Bankroll in cents
+   * @return None.
+   */
+  public void setBankroll(long bankroll) {
+    this.bankroll = bankroll;
+  }
+
+  /**
+   * Places the bet of the round, but never more than the bankroll.
+   * @param amount Amount to bet in cents
+   * @return None.
+   */
+  public void placeBet(long amount) {
+    bet = Math.max(0, Math.min(amount, bankroll));
+  }
 
-    // if ace, add as 11 to total first
-    if (number == 1) {
-      total += ACE_AS_ELEVEN;
-      aceAsElevenCount += 1;
+  /**
+   * Returns the bet on each hand this round, before doubling.
+   * @return Bet in cents
+   */
+  public long getBet() {
+    return bet;
+  }
+
+  /**
+   * Returns whether the player has the money to put more on the table, on top
+   * of what is already bet this round, as doubling, splitting and insurance
+   * need.
+   * @param amount Amount to add in cents
+   * @return true if the bankroll covers it
+   */
+  public boolean canCover(long amount) {
+    long stake = insured ? bet / 2 : 0;
+    for (int h = 0; h < numHands; h++) {
+      stake += hands[h].isDoubled() ? 2 * bet : bet;
     }
-    else if (number >= FACE_CARD_AMT && number <= KING_AS_INT) // 10,J,Q,K = 10
-      total += FACE_CARD_AMT;
-    else // 2-9 cards
-      total += number;
 
-    // while busted but have an aceAsEleven, change the ace's values to 1
-    while (total > BUST_NUM && aceAsElevenCount > 0) {
-      aceAsElevenCount -= 1;
-      aceAsOneCount += 1;
+    return bankroll - stake >= amount;
+  }
+
+  /**
+   * Adds the amount won in the round to the bankroll.
+   * @param won Amount won in cents, negative if lost
+   * @return None.
+   */
+  public void settle(long won) {
+    bankroll += won;
+  }
+
+  /**
+   * Returns the number of bytes saveState writes.
+   * @return Size of the state
+   */
+  public int getStateSize() {
+    int stateSize = 2 * Integer.BYTES + 2 + 2 * Long.BYTES;
+    for (int h = 0; h < numHands; h++) {
+      stateSize += hands[h].getStateSize();
+    }
+
+    return stateSize;
+  }
+
+  /**
+   * Writes the state of the player: the hands in play, which one is active,
+   * the bankroll and the bet.
+   * @param buffer Buffer to write to, with getStateSize bytes left
+   * @return None.
+   */
+  public void saveState(ByteBuffer buffer) {
+    buffer.putInt(numHands).putInt(activeHand)
+        .put((byte) (surrendered ? 1 : 0)).put((byte) (insured ? 1 : 0))
+        .putLong(bankroll).putLong(bet);
+    for (int h = 0; h < numHands; h++) {
+      hands[h].saveState(buffer);
+    }
+  }
+
+  /**
+   * Reads a state written by saveState, replacing the current one.
+   * @param buffer Buffer to read from
+   * @return None.
+   * @throws IllegalArgumentException If the state is not valid
+   */
+  public void restoreState(ByteBuffer buffer) {
+    int savedHands = buffer.getInt();
+    int savedActive = buffer.getInt();
+    if (savedHands < 1 || savedHands > MAX_HANDS || savedActive < 0
+        || savedActive >= savedHands)
+      throw new IllegalArgumentException("hand " + savedActive + " of "
+          + savedHands);
+
+    numHands = savedHands;
+    activeHand = savedActive;
+    surrendered = buffer.get() != 0;
+    insured = buffer.get() != 0;
+    bankroll = buffer.getLong();
+    bet = buffer.getLong();
 
-      total = total - ACE_AS_ELEVEN + 1;
+    for (int h = 0; h < hands.length; h++) {
+      if (h < numHands)
+        hands[h].restoreState(buffer);
+      else
+        hands[h].clear();
     }
+    hand = hands[activeHand];
   }
 
   /**
-   * Returns the player's hand.
+   * Returns the player's active hand.
    * @return Player's hand
    */
-  public ArrayList<Integer> getHand() {
-    return hand.getCards();
+  public Hand getHand() {
+    return hand;
   }
 
   /**
@@ -75,7 +337,7 @@ public class Player {
    * @return aceAsElevenCount
    */
   public int getAceAsElevenCount() {
-    return aceAsElevenCount;
+    return hand.getAceAsElevenCount();
   }
 
   /**
@@ -83,7 +345,7 @@ public class Player {
    * @return aceAsOneCount
    */
   public int getAceAsOneCount() {
-    return aceAsOneCount;
+    return hand.getAceAsOneCount();
   }
 
   /**
@@ -91,7 +353,7 @@ public class Player {
    * @return Total of player's hand
    */
   public int getTotal() {
-    return total;
+    return hand.getTotal();
   }
 
   /**
@@ -110,7 +372,7 @@ public class Player {
     }
 
     int cardsToBust = 0; // # of cards that would cause player to bust
-    int numTillBust = BUST_NUM - total; // number added to total to reach 21
+    int numTillBust = BUST_NUM - hand.getTotal(); // added to total to reach 21
 
     // if numTillBust >= 10 (max possible value is 10), then cardsToBust is 0
     if (numTillBust < FACE_CARD_AMT) {
@@ -128,6 +390,6 @@ public class Player {
    * @return If player busted
    */
   public boolean getBusted() {
-    return total > BUST_NUM;
+    return hand.getTotal() > BUST_NUM;
   }
 }
@@ -0,0 +1,48 @@
+/**
+ * A Policy decides for a player what to do on each turn. It is used to play
+ * rounds without a person at the console, such as in simulations. A policy
+ * that only knows hit and stay implements shouldHit; one that also doubles,
+ * splits or surrenders overrides decide.
+ *
+ * @author Aimee Shao
+ */
+public interface Policy {
+
+  // Actions a player can take on a hand
+  int HIT = 0;
+  int STAY = 1;
+  int DOUBLE = 2;
+  int SPLIT = 3;
+  int SURRENDER = 4;
+  int NUM_OF_ACTIONS = 5;
+
+  /**
+   * Decides whether the player should hit.
+   * @param player The player whose turn it is
+   * @param dealerUpCard Number of the dealer's face up card
+   * @return true to hit, false to stay
+   */
+  boolean shouldHit(Player player, int dealerUpCard);
+
+  /**
+   * Decides what the player does with the active hand. By default the
+   * player only hits or stays.
+   * @param player The player whose turn it is
+   * @param dealerUpCard Number of the dealer's face up card
+   * @param allowed Actions allowed now, with bit 1 << action set for each
+   * @return One of the allowed actions
+   */
+  default int decide(Player player, int dealerUpCard, int allowed) {
+    return shouldHit(player, dealerUpCard) ? HIT : STAY;
+  }
+
+  /**
+   * Decides whether the player takes insurance when the dealer shows an ace.
+   * By default the player never does.
+   * @param player The player whose turn it is
+   * @return true to take insurance
+   */
+  default boolean takesInsurance(Player player) {
+    return false;
+  }
+}
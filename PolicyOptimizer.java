@@ -0,0 +1,372 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The PolicyOptimizer searches the thresholds of an UpCardThresholdPolicy for
+ * the policy with the best expected value by hill climbing. Every iteration
+ * tries raising and lowering each threshold by one, evaluates all of these
+ * neighbors by simulation in parallel, and moves to the best one of those
+ * that clearly beat the current policy. The search stops when none does.
+ *
+ * Every policy is played on a TableBatch dealt from the same seed, so all
+ * candidates start from the same shoes and their differences are not drowned
+ * out by luck. The pairing weakens as the shoes are played, though: each table
+ * carries its shoe over from round to round, and once two policies draw a
+ * different number of cards at a table, every later card of that shoe differs
+ * between them, so until the next reshuffle their rounds there are closer to
+ * independent than paired. Evaluations are played in stages, and after each
+ * stage a candidate that has clearly lost to the current policy on the rounds
+ * played so far is stopped, so most bad neighbors only cost a fraction of the
+ * rounds. A neighbor clearly beats the current policy by the same pairwise
+ * test, on the other side, so the search does not climb on luck alone.
+ *
+ * The policy found is played once more from a fresh seed, and the expected
+ * value reported is that of the new rounds: the one on the search's seed is
+ * biased upward, since it picked the policy. Its error is taken from the
+ * totals of the blocks, which are sums over independent tables, as the hands
+ * of a table are not independent when its shoe carries over between rounds.
+ * Since the candidates do not depend on each other, the result for a
+ * seed is the same for any number of threads.
+ *
+ * Rounds are played in blocks of at least one round at every table of the
+ * batch, and every evaluation has NUM_STAGES stages of BLOCKS_PER_STAGE
+ * blocks, so a candidate always plays a multiple of 65,536 rounds: a budget
+ * below that is rounded up to it, and a larger one down to a multiple of it.
+ *
+ * @author Aimee Shao
+ */
+public class PolicyOptimizer {
+
+  // Tables each candidate is played on at once
+  private static final int BATCH_TABLES = 256;
+
+  // Stages of every evaluation, after each of which bad candidates stop
+  private static final int NUM_STAGES = 8;
+
+  // Blocks of rounds in every stage, compared pairwise with the rival's
+  private static final int BLOCKS_PER_STAGE = 32;
+
+  // Standard errors below the current policy a candidate must be to stop,
+  // and above it to be moved to
+  private static final double STOP_Z = 3;
+
+  // Most iterations of the search
+  private static final int MAX_ITERATIONS = 200;
+
+  // String printed after each iteration
+  private static final String ITERATION_STR = "Iteration %d: %d candidate(s)"
+      + ", %d stopped early, expected value %+.4f\n";
+
+  // String of the results
+  private static final String RESULT_STR = String.format("%s\n%s\n%s\n"
+      , "Best policy after %d iteration(s) in %.3f seconds:"
+      , "%sExpected value: %+.4f +/- %.4f per hand (95%% confidence) from a"
+      + " fresh seed,"
+      , "  evaluated %d policies, %d stopped early.");
+
+  // Z value of a 95% confidence interval
+  private static final double Z_95 = 1.959964;
+
+  private Rules rules; // rules of the tables
+  private long blockRounds; // rounds of the batch in each block
+  private long seed; // seed of every candidate's tables
+  private int numThreads; // number of threads to evaluate on
+  private Output progress = null; // where iterations are printed, if any
+
+  // results of the last search
+  private Candidate best = null;
+  private Candidate fresh = null; // the best policy played from a fresh seed
+  private int numIterations = 0;
+  private long numEvaluated = 0;
+  private long numStopped = 0;
+  private long elapsedNanos = 0;
+
+  /**
+   * Constructor for the optimizer.
+   * @param rules Rules of the tables, without options besides HIT_SOFT_17
+   * @param rounds Rounds each candidate is played for, unless stopped early;
+   *               rounded down to a multiple of 65,536, and at least that
+   * @param seed Seed of every candidate's tables
+   * @param numThreads Number of threads to evaluate on
+   */
+  PolicyOptimizer(Rules rules, long rounds, long seed, int numThreads) {
+    this.rules = rules;
+    blockRounds = Math.max(1, rounds / BATCH_TABLES / NUM_STAGES
+        / BLOCKS_PER_STAGE);
+    this.seed = seed;
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Searches for the best policy, starting from the given one.
+   * @param start Policy to start from
+   * @return The best policy found
+   */
+  public UpCardThresholdPolicy optimize(UpCardThresholdPolicy start) {
+    long startNanos = System.nanoTime();
+    numIterations = 0;
+    numEvaluated = 0;
+    numStopped = 0;
+
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    try {
+      best = new Candidate(start, null, seed);
+      pool.invoke(best);
+      numEvaluated += 1;
+
+      while (numIterations < MAX_ITERATIONS) {
+        Candidate[] neighbors = neighborsOf(best);
+        pool.invoke(new RecursiveAction() {
+          protected void compute() {
+            invokeAll(neighbors);
+          }
+        });
+        numIterations += 1;
+
+        // the first of the best neighbors that clearly beat the current
+        // policy, so threads do not change the result
+        Candidate next = best;
+        int stopped = 0;
+        for (Candidate neighbor : neighbors) {
+          if (neighbor.stopped)
+            stopped += 1;
+          else if (neighbor.isClearlyBetter()
+              && (next == best || neighbor.getMean() > next.getMean()))
+            next = neighbor;
+        }
+        numEvaluated += neighbors.length;
+        numStopped += stopped;
+
+        if (progress != null) {
+          progress.printf(ITERATION_STR, numIterations, neighbors.length
+              , stopped, next.getMean());
+          progress.flush();
+        }
+
+        if (next == best)
+          break;
+        best = next;
+      }
+
+      // the seed that picked the policy flatters it, so play it again
+      fresh = new Candidate(best.policy, null
+          , new CardRandom(seed).split().nextLong());
+      pool.invoke(fresh);
+    } finally {
+      pool.shutdown();
+    }
+
+    elapsedNanos = System.nanoTime() - startNanos;
+    return best.policy;
+  }
+
+  /**
+   * Sets where a line is printed after every iteration.
+   * @param progress Where the iterations are printed, or null for none
+   * @return None.
+   */
+  public void setProgress(Output progress) {
+    this.progress = progress;
+  }
+
+  /**
+   * Returns the expected value per hand of the best policy of the last
+   * search, played from a fresh seed.
+   * @return Expected value, for a bet of 1
+   */
+  public double getExpectedValue() {
+    return fresh.getMean();
+  }
+
+  /**
+   * Returns the number of policies evaluated by the last search, including
+   * the ones stopped early.
+   * @return Number of policies
+   */
+  public long getNumEvaluated() {
+    return numEvaluated;
+  }
+
+  /**
+   * Returns the number of policies the last search stopped early.
+   * @return Number of policies
+   */
+  public long getNumStopped() {
+    return numStopped;
+  }
+
+  /**
+   * Returns the best policy of the last search and how it was found.
+   * @return The results
+   */
+  public String toString() {
+    return String.format(RESULT_STR, numIterations, elapsedNanos / 1e9
+        , best.policy, fresh.getMean(), fresh.getError(), numEvaluated
+        , numStopped);
+  }
+
+  /**
+   * Helper method that makes every policy with one threshold of the current
+   * policy raised or lowered by one.
+   * @param current The current policy, fully evaluated
+   * @return The neighbors, not evaluated yet
+   */
+  private Candidate[] neighborsOf(Candidate current) {
+    Candidate[] neighbors =
+        new Candidate[2 * UpCardThresholdPolicy.NUM_OF_PARAMS];
+    int numNeighbors = 0;
+
+    for (int p = 0; p < UpCardThresholdPolicy.NUM_OF_PARAMS; p++) {
+      int stayAt = current.policy.getStayAt(p);
+      if (stayAt > UpCardThresholdPolicy.MIN_STAY_AT)
+        neighbors[numNeighbors++] = new Candidate(current.policy.with(p
+            , stayAt - 1), current, seed);
+      if (stayAt < UpCardThresholdPolicy.MAX_STAY_AT)
+        neighbors[numNeighbors++] = new Candidate(current.policy.with(p
+            , stayAt + 1), current, seed);
+    }
+
+    Candidate[] trimmed = new Candidate[numNeighbors];
+    System.arraycopy(neighbors, 0, trimmed, 0, numNeighbors);
+    return trimmed;
+  }
+
+  /**
+   * Task that evaluates one policy by playing it on a batch of tables.
+   */
+  private class Candidate extends RecursiveAction {
+
+    // tasks are serializable but never serialized
+    private static final long serialVersionUID = 1L;
+
+    private UpCardThresholdPolicy policy; // the policy evaluated
+    private Candidate rival; // policy to beat, fully evaluated, if any
+    private long seed; // seed of the candidate's tables
+    private double[] blockPayoffs; // total payoff of each block of rounds
+    private int numBlocks = 0; // blocks played so far
+    private boolean stopped = false; // whether it was stopped early
+
+    /**
+     * Constructor for the candidate.
+     * @param policy The policy to evaluate
+     * @param rival Fully evaluated policy it is compared to after every
+     *              stage, or null to never stop early
+     * @param seed Seed of the candidate's tables
+     */
+    Candidate(UpCardThresholdPolicy policy, Candidate rival, long seed) {
+      this.policy = policy;
+      this.rival = rival;
+      this.seed = seed;
+      blockPayoffs = new double[NUM_STAGES * BLOCKS_PER_STAGE];
+    }
+
+    /**
+     * Plays the policy stage by stage until it is done or clearly worse than
+     * the rival.
+     * @return None.
+     */
+    protected void compute() {
+      TableBatch batch = new TableBatch(BATCH_TABLES, rules, policy
+          , new CardRandom(seed));
+      int[] outcomes = new int[BATCH_TABLES];
+
+      for (int s = 0; s < NUM_STAGES; s++) {
+        for (int b = 0; b < BLOCKS_PER_STAGE; b++) {
+          double payoff = 0;
+          for (long r = 0; r < blockRounds; r++) {
+            batch.playRound(outcomes);
+            for (int t = 0; t < BATCH_TABLES; t++) {
+              payoff += SimulationResult.PAYOFFS[outcomes[t]];
+            }
+          }
+          blockPayoffs[numBlocks++] = payoff;
+        }
+
+        if (rival != null && isClearlyWorse()) {
+          stopped = true;
+          return;
+        }
+      }
+    }
+
+    /**
+     * Returns the expected value per hand.
+     * @return Expected value over the rounds played
+     */
+    double getMean() {
+      double payoff = 0;
+      for (int b = 0; b < numBlocks; b++) {
+        payoff += blockPayoffs[b];
+      }
+      return payoff / getNumHands();
+    }
+
+    /**
+     * Returns the half width of the 95% confidence interval of the expected
+     * value, from the variance of the totals of the blocks, since the hands
+     * of a table depend on each other through its shoe.
+     * @return Half width of the interval
+     */
+    double getError() {
+      double sum = 0;
+      double squares = 0;
+      for (int b = 0; b < numBlocks; b++) {
+        sum += blockPayoffs[b];
+        squares += blockPayoffs[b] * blockPayoffs[b];
+      }
+
+      double variance = (squares - sum * sum / numBlocks) / (numBlocks - 1);
+      return Z_95 * Math.sqrt(numBlocks * variance) / getNumHands();
+    }
+
+    /**
+     * Helper method that counts the hands played.
+     * @return Number of hands
+     */
+    private long getNumHands() {
+      return (long) numBlocks * blockRounds * BATCH_TABLES;
+    }
+
+    /**
+     * Helper method that checks whether the candidate is clearly worse than
+     * its rival over the same blocks.
+     * @return true if the total difference is more than STOP_Z standard
+     *         errors below zero
+     */
+    private boolean isClearlyWorse() {
+      return pairedZ() < -STOP_Z;
+    }
+
+    /**
+     * Helper method that checks whether the fully played candidate is
+     * clearly better than its rival over the same blocks.
+     * @return true if the total difference is more than STOP_Z standard
+     *         errors above zero
+     */
+    private boolean isClearlyBetter() {
+      return pairedZ() > STOP_Z;
+    }
+
+    /**
+     * Helper method that compares the candidate to its rival over the same
+     * blocks. Since both were dealt the same cards, the differences of their
+     * blocks vary far less than either payoff does, and testing them pairwise
+     * tells the two apart with far fewer rounds.
+     * @return Total difference in standard errors, positive if the candidate
+     *         is ahead
+     */
+    private double pairedZ() {
+      double sum = 0;
+      double squares = 0;
+      for (int b = 0; b < numBlocks; b++) {
+        double difference = blockPayoffs[b] - rival.blockPayoffs[b];
+        sum += difference;
+        squares += difference * difference;
+      }
+
+      double mean = sum / numBlocks;
+      double variance = (squares - sum * mean) / (numBlocks - 1);
+      return sum / Math.sqrt(numBlocks * variance);
+    }
+  }
+}
@@ -0,0 +1,336 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * RoundOdds calculates the exact chances of each outcome of a round between
+ * the dealer and one player, and so the exact expected value, by following
+ * every order in which the cards left can be drawn, weighted by its chance.
+ * The player hits or stays by a policy deciding on the total, whether it is
+ * soft and the dealer's face up card, and the dealer plays as at the end of
+ * the game.
+ *
+ * Since nobody decides anything on the dealer's face down card, the chances
+ * are the same as if it were drawn after the player's hand is done, so the
+ * calculation deals the face up card and the player's two cards, plays the
+ * player's hand, and then the dealer's. Every combination of the first three
+ * cards is a task of its own on a ForkJoinPool. Different orders of the same
+ * cards lead to the same position, so the chances of every player and dealer
+ * position are kept in tables shared by the tasks and only calculated once.
+ *
+ * Every card left is drawn with equal chances, as from a real shoe and as
+ * the hint assumes. The game's Shoe instead deals every card number left
+ * with equal chances, whatever its count, so its simulated rounds come out a
+ * little differently: from one deck, ties are 9.8% of simulated rounds and
+ * 9.5% here.
+ *
+ * @author Aimee Shao
+ */
+public class RoundOdds {
+
+  private static final int NUM_OF_VALUES = CompositionKey.NUM_OF_VALUES;
+  private static final int ACE_AS_ELEVEN = 11;
+
+  // Flag of a soft total returned by Hand.addValue, above any total
+  private static final int SOFT_FLAG = Hand.SOFT_FLAG;
+  private static final int TOTAL_MASK = Hand.SOFT_TOTAL_MASK;
+
+  // Indexes of the dealer's odds: each final total, every bust as
+  // BUST_SUM, and a blackjack on its own
+  private static final int BUST_SUM = Player.BUST_NUM + 1;
+  private static final int BLACKJACK = BUST_SUM + 1;
+  private static final int NUM_OF_DEALER_ODDS = BLACKJACK + 1;
+
+  // Errors in the arguments
+  private static final String ERROR_OPTIONS = "the player only hits and"
+      + " stays, so no rule options besides h17 are allowed";
+  private static final String ERROR_TOO_MANY = "at most %d cards of a value"
+      + " can be calculated";
+
+  private byte[] hits; // 1 where the policy hits, as TableBatch.decisionsOf
+  private boolean hitSoft17; // whether the dealer hits a soft 17
+  private int numThreads; // number of threads to calculate on
+
+  // chances of each outcome from a player's position, by the face up card,
+  // the hand and the cards left
+  private ConcurrentHashMap<CompositionKey, double[]> playerTable;
+
+  // chances of each final total of the dealer, by the face up card and the
+  // cards left
+  private ConcurrentHashMap<CompositionKey, double[]> dealerTable;
+
+  /**
+   * Constructor for the calculator.
+   * @param rules Rules of the table, without options besides HIT_SOFT_17
+   * @param policy Policy of the player, deciding on the total, whether it is
+   *               soft and the dealer's face up card
+   * @param numThreads Number of threads to calculate on
+   * @throws IllegalArgumentException If the rules allow more than hit and stay
+   */
+  RoundOdds(Rules rules, Policy policy, int numThreads) {
+    if ((rules.getOptions() & ~Rules.HIT_SOFT_17) != 0)
+      throw new IllegalArgumentException(ERROR_OPTIONS);
+
+    hits = TableBatch.decisionsOf(policy);
+    hitSoft17 = rules.hitsSoft17();
+    this.numThreads = numThreads;
+    playerTable = new ConcurrentHashMap<>();
+    dealerTable = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Calculates the chances of each outcome of a round dealt from the given
+   * cards. Orders in which the cards run out before the round is over are
+   * left out, as they cannot happen with a deck or more.
+   * @param deck Count of each card number 1-13 in the shoe
+   * @return Chance of each of RoundResult's outcomes, by outcome
+   * @throws IllegalArgumentException If there are too many cards of a value
+   *                                  to tell compositions apart
+   */
+  public double[] calculate(int[] deck) {
+    int[] counts = new int[NUM_OF_VALUES];
+    int cardsLeft = CompositionKey.collapse(deck, counts);
+    for (int v = 0; v < NUM_OF_VALUES; v++) {
+      if (counts[v] > CompositionKey.MAX_COUNT)
+        throw new IllegalArgumentException(String.format(ERROR_TOO_MANY
+            , CompositionKey.MAX_COUNT));
+    }
+
+    // a task for every face up card and first two cards of the player
+    StartTask[] tasks = new StartTask[NUM_OF_VALUES * NUM_OF_VALUES
+        * NUM_OF_VALUES];
+    int numTasks = 0;
+    for (int up = 1; up <= NUM_OF_VALUES; up++) {
+      for (int first = 1; first <= NUM_OF_VALUES; first++) {
+        for (int second = 1; second <= NUM_OF_VALUES; second++) {
+          tasks[numTasks++] = new StartTask(up, first, second, counts
+              , cardsLeft);
+        }
+      }
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    try {
+      pool.invoke(new RecursiveTask<Void>() {
+        protected Void compute() {
+          invokeAll(tasks);
+          return null;
+        }
+      });
+    } finally {
+      pool.shutdown();
+    }
+
+    // add up in task order, so the sums do not depend on the threads
+    double[] odds = new double[RoundResult.NUM_OF_OUTCOMES];
+    for (StartTask task : tasks) {
+      double[] taskOdds = task.join();
+      for (int o = 0; o < odds.length; o++) {
+        odds[o] += taskOdds[o];
+      }
+    }
+
+    return odds;
+  }
+
+  /**
+   * Returns the expected value of a hand with the given chances of each
+   * outcome.
+   * @param odds Chance of each of RoundResult's outcomes
+   * @return Expected value, for a bet of 1
+   */
+  public static double expectedValue(double[] odds) {
+    double value = 0;
+    for (int o = 0; o < odds.length; o++) {
+      value += odds[o] * SimulationResult.PAYOFFS[o];
+    }
+
+    return value;
+  }
+
+  /**
+   * Returns the number of player and dealer positions calculated so far.
+   * @return Number of positions in the tables
+   */
+  public int getNumPositions() {
+    return playerTable.size() + dealerTable.size();
+  }
+
+  /**
+   * Task that plays every round starting with the given three cards.
+   */
+  private class StartTask extends RecursiveTask<double[]> {
+
+    // tasks are serializable but never serialized
+    private static final long serialVersionUID = 1L;
+
+    private int up; // value of the dealer's face up card
+    private int first; // values of the player's first two cards
+    private int second;
+    private int[] counts; // count of each value left, owned by the task
+    private int cardsLeft; // number of cards left
+
+    /**
+     * Constructor for the task.
+     * @param up Value 1-10 of the dealer's face up card
+     * @param first Value 1-10 of the player's first card
+     * @param second Value 1-10 of the player's second card
+     * @param counts Count of each value in the shoe, copied
+     * @param cardsLeft Number of cards in the shoe
+     */
+    StartTask(int up, int first, int second, int[] counts, int cardsLeft) {
+      this.up = up;
+      this.first = first;
+      this.second = second;
+      this.counts = counts.clone();
+      this.cardsLeft = cardsLeft;
+    }
+
+    /**
+     * Deals the three cards and plays the rest of the round.
+     * @return Chance of each outcome and of the three cards together
+     */
+    protected double[] compute() {
+      double[] odds = new double[RoundResult.NUM_OF_OUTCOMES];
+
+      // chance of drawing the three cards in this order
+      double chance = 1;
+      int[] values = {up, first, second};
+      for (int value : values) {
+        if (counts[value - 1] == 0)
+          return odds;
+        chance *= (double) counts[value - 1] / cardsLeft;
+        counts[value - 1] -= 1;
+        cardsLeft -= 1;
+      }
+
+      int hand = Hand.addValue(0, false, first);
+      hand = Hand.addValue(hand & TOTAL_MASK, hand >= SOFT_FLAG, second);
+      double[] handOdds = play(up, hand & TOTAL_MASK, hand >= SOFT_FLAG, true);
+      for (int o = 0; o < odds.length; o++) {
+        odds[o] = chance * handOdds[o];
+      }
+
+      return odds;
+    }
+
+    /**
+     * Helper method that plays the player's hand from a position.
+     * @param up Value of the dealer's face up card
+     * @param total Player's total, not busted
+     * @param soft Whether the player has an ace counted as 11
+     * @param twoCards Whether the player has only the first two cards
+     * @return Chance of each outcome from the position
+     */
+    private double[] play(int up, int total, boolean soft, boolean twoCards) {
+      // face up card, hand and whether it has two cards in the key's extra
+      int state = ((up << 5 | total) << 1 | (soft ? 1 : 0)) << 1
+          | (twoCards ? 1 : 0);
+      CompositionKey key = new CompositionKey(state, counts);
+      double[] odds = playerTable.get(key);
+      if (odds != null)
+        return odds;
+
+      odds = new double[RoundResult.NUM_OF_OUTCOMES];
+      boolean hit = hits[((soft ? 1 : 0) * TableBatch.NUM_OF_TOTALS + total)
+          * NUM_OF_VALUES + up - 1] != 0;
+
+      if (hit) {
+        for (int v = 0; v < NUM_OF_VALUES; v++) {
+          if (counts[v] == 0)
+            continue;
+
+          double chance = (double) counts[v] / cardsLeft;
+          int hand = Hand.addValue(total, soft, v + 1);
+          if ((hand & TOTAL_MASK) > Player.BUST_NUM) {
+            odds[RoundResult.LOSES_BUST] += chance;
+            continue;
+          }
+
+          counts[v] -= 1;
+          cardsLeft -= 1;
+          double[] next = play(up, hand & TOTAL_MASK, hand >= SOFT_FLAG, false);
+          counts[v] += 1;
+          cardsLeft += 1;
+
+          for (int o = 0; o < odds.length; o++) {
+            odds[o] += chance * next[o];
+          }
+        }
+      } else {
+        double[] dealer = dealerOdds(up);
+        for (int sum = Board.DEALER_MINIMUM; sum <= BUST_SUM; sum++) {
+          odds[TableBatch.outcomeOf(total, twoCards, sum, false)] +=
+              dealer[sum];
+        }
+        odds[TableBatch.outcomeOf(total, twoCards, Player.BUST_NUM, true)] +=
+            dealer[BLACKJACK];
+      }
+
+      playerTable.putIfAbsent(key, odds);
+      return odds;
+    }
+
+    /**
+     * Helper method that finds the chances of each final total of the
+     * dealer for the cards left.
+     * @param up Value of the dealer's face up card
+     * @return Chance of each final total, BUST_SUM and BLACKJACK
+     */
+    private double[] dealerOdds(int up) {
+      CompositionKey key = new CompositionKey(up, counts);
+      double[] odds = dealerTable.get(key);
+      if (odds != null)
+        return odds;
+
+      odds = new double[NUM_OF_DEALER_ODDS];
+      int hand = Hand.addValue(0, false, up);
+      draw(hand & TOTAL_MASK, hand >= SOFT_FLAG, true, 1.0, odds);
+
+      dealerTable.putIfAbsent(key, odds);
+      return odds;
+    }
+
+    /**
+     * Helper method that draws every possible next card of the dealer and
+     * adds the chance of each final total to the odds.
+     * @param total Dealer's current total
+     * @param soft Whether the dealer has an ace counted as 11
+     * @param oneCard Whether the dealer only has the face up card
+     * @param chance Chance of reaching this hand
+     * @param odds Odds to add to
+     * @return None.
+     */
+    private void draw(int total, boolean soft, boolean oneCard, double chance
+        , double[] odds) {
+      // no cards left to draw from; this hand cannot happen
+      if (cardsLeft == 0)
+        return;
+
+      for (int v = 0; v < NUM_OF_VALUES; v++) {
+        if (counts[v] == 0)
+          continue;
+
+        double next = chance * counts[v] / cardsLeft;
+        int hand = Hand.addValue(total, soft, v + 1);
+        int newTotal = hand & TOTAL_MASK;
+        boolean newSoft = hand >= SOFT_FLAG;
+
+        if (oneCard && newTotal == Player.BUST_NUM)
+          odds[BLACKJACK] += next;
+        else if (newTotal > Player.BUST_NUM)
+          odds[BUST_SUM] += next;
+        else if (newTotal >= Board.DEALER_MINIMUM && !(hitSoft17 && newSoft
+            && newTotal == Board.DEALER_MINIMUM))
+          odds[newTotal] += next;
+        else {
+          counts[v] -= 1;
+          cardsLeft -= 1;
+          draw(newTotal, newSoft, false, next, odds);
+          counts[v] += 1;
+          cardsLeft += 1;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,267 @@
+/**
+ * This class holds the results of one round of Blackjack: the dealer's total,
+ * the total and outcome of every hand of every player, and how much money
+ * every player bet and won. A board reuses the same RoundResult every round
+ * so that simulations do not create garbage.
+ *
+ * @author Aimee Shao
+ */
+public class RoundResult {
+
+  // Outcomes of a player, matching the strings printed at the end of a game
+  public static final int WINS = 0;
+  public static final int WINS_BUST = 1;
+  public static final int LOSES_BUST = 2;
+  public static final int TIES = 3;
+  public static final int LOSES = 4;
+  public static final int SURRENDERS = 5;
+  public static final int BLACKJACK = 6;
+  public static final int NUM_OF_OUTCOMES = 7;
+
+  private int dealerTotal; // dealer's final total
+  private int dealerUpCard; // number of the dealer's face up card
+  private boolean dealerBlackjack; // whether dealer had 21 with two cards
+  // Hands of player p are at index p * Player.MAX_HANDS + hand of these
+  private int[] playerTotals; // final total of each hand; dealer is index 0
+  private int[] outcomes; // outcome of each hand
+  private boolean[] doubled; // whether each hand's bet was doubled
+  private int[] numHands; // number of hands of each player
+  private boolean[] insured; // whether each player took insurance
+  private long[] wagered; // money each player put on the table, in cents
+  private long[] won; // money each player won, negative if lost, in cents
+  private long[] bankrolls; // money each player has after the round, in cents
+
+  /**
+   * Constructor for the results of a board with the given number of players.
+   * @param numPlayers Number of players besides the dealer.
+   */
+  RoundResult(int numPlayers) {
+    playerTotals = new int[(numPlayers + 1) * Player.MAX_HANDS];
+    outcomes = new int[(numPlayers + 1) * Player.MAX_HANDS];
+    doubled = new boolean[(numPlayers + 1) * Player.MAX_HANDS];
+    numHands = new int[numPlayers + 1];
+    insured = new boolean[numPlayers + 1];
+    wagered = new long[numPlayers + 1];
+    won = new long[numPlayers + 1];
+    bankrolls = new long[numPlayers + 1];
+  }
+
+  /**
+   * Returns the amount won by a hand, paying 3 to 2 for a blackjack, 1 to 1
+   * for any other win and returning half the bet after surrendering. Half
+   * cents are kept by the house.
+   * @param outcome One of the outcomes
+   * @param stake Amount bet on the hand, in cents
+   * @return Amount won in cents, negative if lost
+   */
+  static long payout(int outcome, long stake) {
+    switch (outcome) {
+      case WINS:
+      case WINS_BUST:
+        return stake;
+      case BLACKJACK:
+        return stake * 3 / 2;
+      case TIES:
+        return 0;
+      case SURRENDERS:
+        return stake / 2 - stake;
+      default:
+        return -stake;
+    }
+  }
+
+  /**
+   * Sets the dealer's final total.
+   * @param total Dealer's total
+   * @return None.
+   */
+  void setDealerTotal(int total) {
+    dealerTotal = total;
+  }
+
+  /**
+   * Sets the dealer's face up card.
+   * @param upCard Number 1-13 of the card
+   * @return None.
+   */
+  void setDealerUpCard(int upCard) {
+    dealerUpCard = upCard;
+  }
+
+  /**
+   * Sets whether the dealer had 21 with the first two cards.
+   * @param blackjack Whether the dealer had 21 with two cards
+   * @return None.
+   */
+  void setDealerBlackjack(boolean blackjack) {
+    dealerBlackjack = blackjack;
+  }
+
+  /**
+   * Sets how many hands a player had and whether the player took insurance.
+   * @param player Index of the player, starting from 1
+   * @param hands Number of hands of the player
+   * @param insured Whether the player took insurance
+   * @return None.
+   */
+  void setPlayer(int player, int hands, boolean insured) {
+    numHands[player] = hands;
+    this.insured[player] = insured;
+  }
+
+  /**
+   * Sets how much money a player bet and won.
+   * @param player Index of the player, starting from 1
+   * @param wagered Money put on the table, in cents
+   * @param won Money won, negative if lost, in cents
+   * @param bankroll Money the player has after the round, in cents
+   * @return None.
+   */
+  void setMoney(int player, long wagered, long won, long bankroll) {
+    this.wagered[player] = wagered;
+    this.won[player] = won;
+    bankrolls[player] = bankroll;
+  }
+
+  /**
+   * Sets the final total and outcome of a hand of a player.
+   * @param player Index of the player, starting from 1
+   * @param hand Index of the player's hand
+   * @param total Hand's total
+   * @param outcome One of the outcome constants
+   * @param doubled Whether the bet on the hand was doubled
+   * @return None.
+   */
+  void setHand(int player, int hand, int total, int outcome, boolean doubled) {
+    int i = player * Player.MAX_HANDS + hand;
+    playerTotals[i] = total;
+    outcomes[i] = outcome;
+    this.doubled[i] = doubled;
+  }
+
+  /**
+   * Returns the dealer's final total.
+   * @return Dealer's total
+   */
+  public int getDealerTotal() {
+    return dealerTotal;
+  }
+
+  /**
+   * Returns the dealer's face up card.
+   * @return Number 1-13 of the card
+   */
+  public int getDealerUpCard() {
+    return dealerUpCard;
+  }
+
+  /**
+   * Returns whether the dealer had 21 with the first two cards.
+   * @return true if the dealer had 21 with two cards
+   */
+  public boolean isDealerBlackjack() {
+    return dealerBlackjack;
+  }
+
+  /**
+   * Returns the final total of a player's first hand.
+   * @param player Index of the player, starting from 1
+   * @return Player's total
+   */
+  public int getPlayerTotal(int player) {
+    return playerTotals[player * Player.MAX_HANDS];
+  }
+
+  /**
+   * Returns the final total of a hand of a player.
+   * @param player Index of the player, starting from 1
+   * @param hand Index of the player's hand
+   * @return Hand's total
+   */
+  public int getPlayerTotal(int player, int hand) {
+    return playerTotals[player * Player.MAX_HANDS + hand];
+  }
+
+  /**
+   * Returns the outcome of a player's first hand.
+   * @param player Index of the player, starting from 1
+   * @return One of the outcome constants
+   */
+  public int getOutcome(int player) {
+    return outcomes[player * Player.MAX_HANDS];
+  }
+
+  /**
+   * Returns the outcome of a hand of a player.
+   * @param player Index of the player, starting from 1
+   * @param hand Index of the player's hand
+   * @return One of the outcome constants
+   */
+  public int getOutcome(int player, int hand) {
+    return outcomes[player * Player.MAX_HANDS + hand];
+  }
+
+  /**
+   * Returns whether the bet on a hand of a player was doubled.
+   * @param player Index of the player, starting from 1
+   * @param hand Index of the player's hand
+   * @return true if doubled
+   */
+  public boolean isDoubled(int player, int hand) {
+    return doubled[player * Player.MAX_HANDS + hand];
+  }
+
+  /**
+   * Returns the number of hands a player had, more than one after splitting.
+   * @param player Index of the player, starting from 1
+   * @return Number of hands
+   */
+  public int getNumHands(int player) {
+    return numHands[player];
+  }
+
+  /**
+   * Returns whether a player took insurance.
+   * @param player Index of the player, starting from 1
+   * @return true if insured
+   */
+  public boolean isInsured(int player) {
+    return insured[player];
+  }
+
+  /**
+   * Returns the money a player put on the table, counting doubled and split
+   * hands and insurance.
+   * @param player Index of the player, starting from 1
+   * @return Money wagered in cents
+   */
+  public long getWagered(int player) {
+    return wagered[player];
+  }
+
+  /**
+   * Returns the money a player won.
+   * @param player Index of the player, starting from 1
+   * @return Money won in cents, negative if lost
+   */
+  public long getWon(int player) {
+    return won[player];
+  }
+
+  /**
+   * Returns the money a player has after the round.
+   * @param player Index of the player, starting from 1
+   * @return Bankroll in cents
+   */
+  public long getBankroll(int player) {
+    return bankrolls[player];
+  }
+
+  /**
+   * Returns the number of players besides the dealer.
+   * @return Number of players
+   */
+  public int getNumPlayers() {
+    return numHands.length - 1;
+  }
+}
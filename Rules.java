@@ -0,0 +1,158 @@
+/**
+ * Rules holds the settings of a table that stay the same for every round,
+ * such as how many decks are in the shoe, when it is reshuffled, whether the
+ * dealer hits a soft 17 and which actions besides hit and stay are allowed.
+ * A Board reads the rules once when it is created, so the checks cost nothing
+ * while cards are dealt.
+ *
+ * @author Aimee Shao
+ */
+public class Rules {
+
+  // Defaults match the original game: one deck dealt until it runs out
+  public static final int DEFAULT_NUM_DECKS = 1;
+  public static final int DEFAULT_PENETRATION = 100;
+
+  // Rule options, combined with |; the original game has none of them
+  public static final int HIT_SOFT_17 = 1; // dealer hits a soft 17
+  public static final int DOUBLE = 1 << 1; // double the bet for one card
+  public static final int SPLIT = 1 << 2; // split a pair into two hands
+  public static final int SURRENDER = 1 << 3; // give up half the bet
+  public static final int INSURANCE = 1 << 4; // side bet on dealer's 21
+  public static final int NO_OPTIONS = 0;
+
+  // Names of the options, in the order of their bits
+  private static final String[] OPTION_NAMES = {"h17", "double", "split"
+      , "surrender", "insurance"};
+  private static final String OPTION_SEPARATOR = ",";
+
+  private final int numDecks; // number of decks in the shoe
+  private final int penetration; // percent of the shoe dealt before reshuffling
+  private final int options; // rule options that are on
+
+  /**
+   * Default constructor for the rules of the original game.
+   */
+  Rules() {
+    this(DEFAULT_NUM_DECKS, DEFAULT_PENETRATION);
+  }
+
+  /**
+   * Constructor for the rules without any of the rule options.
+   * @param numDecks Number of decks in the shoe, at least 1
+   * @param penetration Percent of the shoe dealt before the cut card, 1-100
+   */
+  Rules(int numDecks, int penetration) {
+    this(numDecks, penetration, NO_OPTIONS);
+  }
+
+  /**
+   * Constructor for the rules.
+   * @param numDecks Number of decks in the shoe, at least 1
+   * @param penetration Percent of the shoe dealt before the cut card, 1-100
+   * @param options Rule options that are on, such as DOUBLE | SPLIT
+   */
+  Rules(int numDecks, int penetration, int options) {
+    if (numDecks < 1)
+      throw new IllegalArgumentException("numDecks must be at least 1");
+    if (penetration < 1 || penetration > 100)
+      throw new IllegalArgumentException("penetration must be 1-100");
+    if ((options & ~((1 << OPTION_NAMES.length) - 1)) != 0)
+      throw new IllegalArgumentException("unknown rule options");
+
+    this.numDecks = numDecks;
+    this.penetration = penetration;
+    this.options = options;
+  }
+
+  /**
+   * Parses a comma separated list of option names, such as "double,split".
+   * @param names The list of names
+   * @return The options, combined with |
+   * @throws IllegalArgumentException If a name is not an option
+   */
+  public static int parseOptions(String names) {
+    int options = NO_OPTIONS;
+
+    for (String name : names.split(OPTION_SEPARATOR)) {
+      int bit = 0;
+      while (bit < OPTION_NAMES.length && !OPTION_NAMES[bit].equals(name)) {
+        bit++;
+      }
+
+      if (bit == OPTION_NAMES.length)
+        throw new IllegalArgumentException(name);
+
+      options |= 1 << bit;
+    }
+
+    return options;
+  }
+
+  /**
+   * Returns the number of decks in the shoe.
+   * @return Number of decks
+   */
+  public int getNumDecks() {
+    return numDecks;
+  }
+
+  /**
+   * Returns the percent of the shoe dealt before the cut card.
+   * @return Penetration in percent
+   */
+  public int getPenetration() {
+    return penetration;
+  }
+
+  /**
+   * Returns the rule options that are on.
+   * @return The options, combined with |
+   */
+  public int getOptions() {
+    return options;
+  }
+
+  /**
+   * Returns whether the dealer hits a soft 17 instead of staying.
+   * @return true if the dealer hits a soft 17
+   */
+  public boolean hitsSoft17() {
+    return (options & HIT_SOFT_17) != 0;
+  }
+
+  /**
+   * Returns whether a player may double the bet on the first two cards of a
+   * hand and take exactly one more card.
+   * @return true if doubling is allowed
+   */
+  public boolean allowsDouble() {
+    return (options & DOUBLE) != 0;
+  }
+
+  /**
+   * Returns whether a player may split two cards of the same value into two
+   * hands.
+   * @return true if splitting is allowed
+   */
+  public boolean allowsSplit() {
+    return (options & SPLIT) != 0;
+  }
+
+  /**
+   * Returns whether a player may give up the first two cards for half the
+   * bet back.
+   * @return true if surrendering is allowed
+   */
+  public boolean allowsSurrender() {
+    return (options & SURRENDER) != 0;
+  }
+
+  /**
+   * Returns whether a player may take insurance when the dealer shows an ace.
+   * @return true if insurance is allowed
+   */
+  public boolean allowsInsurance() {
+    return (options & INSURANCE) != 0;
+  }
+}
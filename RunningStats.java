@@ -0,0 +1,103 @@
+import java.nio.ByteBuffer;
+
+/**
+ * RunningStats keeps the count, mean and variance of a stream of values in
+ * constant memory, updating them one value at a time with Welford's method.
+ * Two streams are merged with Chan's formula, so statistics collected on
+ * separate threads can be combined without keeping the values. The state is
+ * three numbers, so it can be saved and restored.
+ *
+ * @author Aimee Shao
+ */
+public class RunningStats {
+
+  // Number of bytes saveState writes
+  static final int STATE_SIZE = Long.BYTES + 2 * Double.BYTES;
+
+  // Z value of a 95% confidence interval
+  private static final double Z_95 = 1.959964;
+
+  private long count = 0; // number of values
+  private double mean = 0; // mean of the values
+  private double m2 = 0; // sum of squared differences from the mean
+
+  /**
+   * Adds a value.
+   * @param value The value to add
+   * @return None.
+   */
+  public void add(double value) {
+    count += 1;
+    double delta = value - mean;
+    mean += delta / count;
+    m2 += delta * (value - mean);
+  }
+
+  /**
+   * Adds the values of another stream to this one.
+   * @param other Statistics of the other stream
+   * @return None.
+   */
+  public void merge(RunningStats other) {
+    if (other.count == 0)
+      return;
+
+    long total = count + other.count;
+    double delta = other.mean - mean;
+    mean += delta * other.count / total;
+    m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+    count = total;
+  }
+
+  /**
+   * Returns the number of values.
+   * @return Number of values
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the mean of the values.
+   * @return Mean, 0 if there are no values
+   */
+  public double getMean() {
+    return mean;
+  }
+
+  /**
+   * Returns the sample variance of the values.
+   * @return Variance, 0 if there are fewer than 2 values
+   */
+  public double getVariance() {
+    return count < 2 ? 0 : m2 / (count - 1);
+  }
+
+  /**
+   * Returns the half width of the 95% confidence interval of the mean.
+   * @return Half width of the interval
+   */
+  public double getError() {
+    return count < 2 ? 0 : Z_95 * Math.sqrt(getVariance() / count);
+  }
+
+  /**
+   * Writes the count, mean and variance.
+   * @param buffer Buffer to write to, with STATE_SIZE bytes left
+   * @return None.
+   */
+  public void saveState(ByteBuffer buffer) {
+    buffer.putLong(count).putDouble(mean).putDouble(m2);
+  }
+
+  /**
+   * Reads a state written by saveState, replacing the current one.
+   * @param buffer Buffer to read from
+   * @return None.
+   */
+  public void restoreState(ByteBuffer buffer) {
+    count = buffer.getLong();
+    mean = buffer.getDouble();
+    m2 = buffer.getDouble();
+  }
+}
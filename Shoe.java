@@ -0,0 +1,286 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The Shoe holds the cards that have not been dealt yet. Dealing picks one of
+ * the card numbers that are still left with equal chances, whatever their
+ * counts, as the game has always dealt. The numbers left are kept in order in
+ * a short list that only changes when a number runs out, so every deal takes
+ * one random number and constant time. The cards dealt since the last refill
+ * are kept behind the cards left, so they can be put back.
+ *
+ * The state of the shoe, including the order of its cards and its random
+ * generator, can be saved and restored, so a restored shoe deals the same
+ * cards the saved one would have.
+ *
+ * @author Aimee Shao
+ */
+public class Shoe {
+
+  // Used in the deck
+  static final int NUM_OF_NUMBERS = 13;
+  static final int NUM_OF_SUITS = 4;
+
+  // Errors when restoring
+  private static final String ERROR_OTHER_SHOE = "state is of a shoe with %d"
+      + " deck(s) and %d cards before the cut card, not %d and %d";
+  private static final String ERROR_BAD_STATE = "state has %d of %d cards left";
+  private static final String ERROR_BAD_CARD = "state has a card that is not"
+      + " 1-13";
+
+  // Hi-Lo count of each card number: 2-6 are +1, 7-9 are 0, 10-A are -1
+  private static final int[] HI_LO = {0, -1, 1, 1, 1, 1, 1, 0, 0, 0, -1, -1
+      , -1, -1};
+
+  private byte[] cards; // every card; the cards dealt since the refill are
+                       // behind the first cardsLeft, the latest first
+  private int[] counts; // count of each card number 1-13 left in the shoe
+  private byte[] numbersLeft; // numbers with cards left, from low to high
+  private int numNumbersLeft = 0; // number of numbers with cards left
+  private int cardsLeft = 0; // number of cards left in the shoe
+  private int numDecks; // number of decks in the shoe
+  private int cutCard; // number of cards left when the cut card comes out
+  private int runningCount = 0; // Hi-Lo count of the cards dealt
+
+  private CardRandom rand; // random generator used in dealing cards
+
+  /**
+   * Constructor for a shoe. The shoe starts empty and needs to be refilled
+   * before dealing.
+   * @param numDecks Number of decks in the shoe
+   * @param penetration Percent of the shoe dealt before the cut card
+   * @param rand Random generator used in dealing cards
+   */
+  Shoe(int numDecks, int penetration, CardRandom rand) {
+    cards = new byte[NUM_OF_NUMBERS * NUM_OF_SUITS * numDecks];
+    counts = new int[NUM_OF_NUMBERS];
+    numbersLeft = new byte[NUM_OF_NUMBERS];
+    this.numDecks = numDecks;
+    this.rand = rand;
+
+    cutCard = cards.length - cards.length * penetration / 100;
+
+    // every card is a valid number even before it is dealt, so any state
+    // can be saved
+    for (int i = 0; i < cards.length; i++) {
+      cards[i] = (byte) (i % NUM_OF_NUMBERS + 1);
+    }
+  }
+
+  /**
+   * Deals a card of a random number among the numbers left in the shoe. The
+   * shoe must not be empty.
+   * @return Number of the dealt card
+   */
+  public int deal() {
+    // pick any of the numbers left and keep the card right behind the rest
+    int number = numbersLeft[rand.nextInt(numNumbersLeft)];
+    if (--counts[number - 1] == 0)
+      removeNumber(number);
+
+    cardsLeft -= 1;
+    cards[cardsLeft] = (byte) number;
+    runningCount += HI_LO[number];
+    return number;
+  }
+
+  /**
+   * Puts the most recently dealt cards back into the shoe. The shoe then has
+   * the same cards left as before they were dealt.
+   * @param numCards Number of cards to put back
+   * @return None.
+   */
+  public void putBack(int numCards) {
+    for (int i = 0; i < numCards; i++) {
+      int number = cards[cardsLeft];
+      if (counts[number - 1]++ == 0)
+        addNumber(number);
+      runningCount -= HI_LO[number];
+      cardsLeft += 1;
+    }
+  }
+
+  /**
+   * Puts every card back into the shoe.
+   * @return None.
+   */
+  public void refill() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = NUM_OF_SUITS * numDecks;
+      numbersLeft[i] = (byte) (i + 1);
+    }
+
+    numNumbersLeft = NUM_OF_NUMBERS;
+    cardsLeft = cards.length;
+    runningCount = 0;
+  }
+
+  /**
+   * Puts every card back into the shoe and jumps the generator to the given
+   * split of a generator with the key, so the cards dealt next only depend on
+   * the key and the index, not on anything dealt before.
+   * @param key Seed the generators of every index are split from
+   * @param index Index of the generator, such as the number of a round
+   * @return None.
+   */
+  public void restart(long key, long index) {
+    refill();
+    rand.jumpToSplit(key, index);
+  }
+
+  /**
+   * Returns whether the cut card came out, meaning the shoe should be
+   * reshuffled before the next round.
+   * @return If the dealt cards reached the cut card
+   */
+  public boolean isPastCutCard() {
+    return cardsLeft <= cutCard;
+  }
+
+  /**
+   * Returns the Hi-Lo running count of the cards dealt since the last refill.
+   * @return Running count
+   */
+  public int getRunningCount() {
+    return runningCount;
+  }
+
+  /**
+   * Returns the true count: the running count divided by the number of decks
+   * left in the shoe.
+   * @return True count, or 0 if the shoe is empty
+   */
+  public double getTrueCount() {
+    if (cardsLeft == 0)
+      return 0;
+
+    return runningCount * (double) (NUM_OF_NUMBERS * NUM_OF_SUITS) / cardsLeft;
+  }
+
+  /**
+   * Returns the number of decks in the shoe.
+   * @return Number of decks
+   */
+  public int getNumDecks() {
+    return numDecks;
+  }
+
+  /**
+   * Returns the number of cards left in the shoe.
+   * @return Number of cards left
+   */
+  public int getCardsLeft() {
+    return cardsLeft;
+  }
+
+  /**
+   * Returns how many cards of a number are left in the shoe.
+   * @param number Card number 1-13
+   * @return Count of the card number left
+   */
+  public int getCount(int number) {
+    return counts[number - 1];
+  }
+
+  /**
+   * Returns the number of bytes saveState writes.
+   * @return Size of the state
+   */
+  public int getStateSize() {
+    return 4 * Integer.BYTES + CardRandom.STATE_SIZE + cards.length;
+  }
+
+  /**
+   * Writes the state of the shoe: the cards left, by number, the cards dealt
+   * since the refill in their order, the running count and the random
+   * generator.
+   * @param buffer Buffer to write to, with getStateSize bytes left
+   * @return None.
+   */
+  public void saveState(ByteBuffer buffer) {
+    buffer.putInt(numDecks).putInt(cutCard).putInt(cardsLeft)
+        .putInt(runningCount);
+    rand.saveState(buffer);
+    for (int n = 0; n < counts.length; n++) {
+      for (int c = 0; c < counts[n]; c++) {
+        buffer.put((byte) (n + 1));
+      }
+    }
+    buffer.put(cards, cardsLeft, cards.length - cardsLeft);
+  }
+
+  /**
+   * Reads a state written by saveState of a shoe with the same number of
+   * decks and penetration, replacing the current one.
+   * @param buffer Buffer to read from
+   * @return None.
+   * @throws IllegalArgumentException If the state is of another shoe or not
+   *                                  valid
+   */
+  public void restoreState(ByteBuffer buffer) {
+    int savedDecks = buffer.getInt();
+    int savedCutCard = buffer.getInt();
+    if (savedDecks != numDecks || savedCutCard != cutCard)
+      throw new IllegalArgumentException(String.format(ERROR_OTHER_SHOE
+          , savedDecks, savedCutCard, numDecks, cutCard));
+
+    int savedCardsLeft = buffer.getInt();
+    if (savedCardsLeft < 0 || savedCardsLeft > cards.length)
+      throw new IllegalArgumentException(String.format(ERROR_BAD_STATE
+          , savedCardsLeft, cards.length));
+
+    cardsLeft = savedCardsLeft;
+    runningCount = buffer.getInt();
+    rand.restoreState(buffer);
+    buffer.get(cards);
+
+    // the counts and the numbers left follow from the cards left
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = 0;
+    }
+    for (int i = 0; i < cards.length; i++) {
+      if (cards[i] < 1 || cards[i] > NUM_OF_NUMBERS)
+        throw new IllegalArgumentException(ERROR_BAD_CARD);
+      if (i < cardsLeft)
+        counts[cards[i] - 1] += 1;
+    }
+
+    numNumbersLeft = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] > 0)
+        numbersLeft[numNumbersLeft++] = (byte) (i + 1);
+    }
+  }
+
+  /**
+   * Helper method that takes a number that ran out off the numbers left,
+   * keeping the others in order.
+   * @param number Number of the card
+   * @return None.
+   */
+  private void removeNumber(int number) {
+    int i = 0;
+    while (numbersLeft[i] != number) {
+      i += 1;
+    }
+
+    numNumbersLeft -= 1;
+    System.arraycopy(numbersLeft, i + 1, numbersLeft, i, numNumbersLeft - i);
+  }
+
+  /**
+   * Helper method that puts a number back into the numbers left, keeping
+   * them in order.
+   * @param number Number of the card
+   * @return None.
+   */
+  private void addNumber(int number) {
+    int i = numNumbersLeft;
+    while (i > 0 && numbersLeft[i - 1] > number) {
+      numbersLeft[i] = numbersLeft[i - 1];
+      i -= 1;
+    }
+
+    numbersLeft[i] = (byte) number;
+    numNumbersLeft += 1;
+  }
+}
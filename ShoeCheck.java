@@ -0,0 +1,153 @@
+import java.util.Arrays;
+
+/**
+ * ShoeCheck checks that the shoe deals with the same chances as the game
+ * always has. The original deck drew numbers 1-13 until it drew one with
+ * cards left, so every number left is dealt with equal chances, whatever its
+ * count, and a number that ran out is never dealt. The check plays shoes of
+ * several sizes to many depths, and at each depth deals one card many times,
+ * putting it back each time, and counts how often each number comes out.
+ *
+ * The counts of all the depths are compared with the expected ones by one
+ * chi-square test, which fails if the statistic is above the value a correct
+ * shoe stays below 99.99% of the time. Dealing with chances by the count of
+ * each number instead, as drawing a random card would, fails it by far. The
+ * check also deals every card of a shoe and checks each number came out four
+ * times per deck. It exits with status 1 on the first failure.
+ *
+ * Run it with `make check`.
+ *
+ * @author Aimee Shao
+ */
+public class ShoeCheck {
+
+  // Numbers of decks checked
+  private static final int[] NUM_DECKS = {1, 2, 6};
+
+  // Depths each shoe is checked at, spread over the whole shoe
+  private static final int NUM_DEPTHS = 40;
+
+  // Cards dealt and put back at each depth
+  private static final int DEALS_PER_DEPTH = 20000;
+
+  // Seed of the shoes
+  private static final long SEED = 1;
+
+  // Z value the chi-square statistic must stay below, for 99.99%
+  private static final double Z_9999 = 3.719016;
+
+  // Strings of the results
+  private static final String EMPTY_DEALT_STR = "Dealt number %d with no"
+      + " cards left, %d deck(s) at depth %d\n";
+  private static final String CHI_SQUARE_STR = "Chi-square %.1f with %d"
+      + " degrees of freedom, at most %.1f allowed\n";
+  private static final String WHOLE_SHOE_STR = "A shoe of %d deck(s) dealt"
+      + " %d of number %d, not %d\n";
+  private static final String PASSED_STR = "Shoe deals every number left with"
+      + " equal chances over %d depths.\n";
+
+  /**
+   * Checks the chances of dealing each number from shoes at many depths.
+   * @param args Command line arguments, not used
+   * @return Nothing.
+   */
+  public static void main(String[] args) {
+    double chiSquare = 0;
+    int degrees = 0;
+    int numDepths = 0;
+    long[] dealt = new long[Shoe.NUM_OF_NUMBERS + 1];
+
+    for (int numDecks : NUM_DECKS) {
+      checkWholeShoe(numDecks);
+
+      Shoe shoe = new Shoe(numDecks, Rules.DEFAULT_PENETRATION
+          , new CardRandom(SEED));
+      int size = Shoe.NUM_OF_NUMBERS * Shoe.NUM_OF_SUITS * numDecks;
+
+      for (int d = 0; d < NUM_DEPTHS; d++) {
+        // deal down to the depth, leaving at least one card
+        int depth = d * (size - 1) / NUM_DEPTHS;
+        shoe.refill();
+        for (int c = 0; c < depth; c++) {
+          shoe.deal();
+        }
+
+        Arrays.fill(dealt, 0);
+        for (int i = 0; i < DEALS_PER_DEPTH; i++) {
+          dealt[shoe.deal()] += 1;
+          shoe.putBack(1);
+        }
+
+        int numbersLeft = 0;
+        for (int n = 1; n <= Shoe.NUM_OF_NUMBERS; n++) {
+          if (shoe.getCount(n) > 0)
+            numbersLeft += 1;
+          else if (dealt[n] > 0)
+            fail(String.format(EMPTY_DEALT_STR, n, numDecks, depth));
+        }
+
+        double expected = (double) DEALS_PER_DEPTH / numbersLeft;
+        for (int n = 1; n <= Shoe.NUM_OF_NUMBERS; n++) {
+          if (shoe.getCount(n) > 0)
+            chiSquare += (dealt[n] - expected) * (dealt[n] - expected)
+                / expected;
+        }
+        degrees += numbersLeft - 1;
+        numDepths += 1;
+      }
+    }
+
+    double limit = chiSquareLimit(degrees);
+    System.out.printf(CHI_SQUARE_STR, chiSquare, degrees, limit);
+    if (chiSquare > limit)
+      System.exit(1);
+
+    System.out.printf(PASSED_STR, numDepths);
+  }
+
+  /**
+   * Helper method that deals every card of a shoe and checks each number
+   * came out four times per deck.
+   * @param numDecks Number of decks in the shoe
+   * @return Nothing.
+   */
+  private static void checkWholeShoe(int numDecks) {
+    Shoe shoe = new Shoe(numDecks, Rules.DEFAULT_PENETRATION
+        , new CardRandom(SEED));
+    shoe.refill();
+
+    int[] dealt = new int[Shoe.NUM_OF_NUMBERS + 1];
+    while (shoe.getCardsLeft() > 0) {
+      dealt[shoe.deal()] += 1;
+    }
+
+    int perNumber = Shoe.NUM_OF_SUITS * numDecks;
+    for (int n = 1; n <= Shoe.NUM_OF_NUMBERS; n++) {
+      if (dealt[n] != perNumber)
+        fail(String.format(WHOLE_SHOE_STR, numDecks, dealt[n], n
+            , perNumber));
+    }
+  }
+
+  /**
+   * Helper method that finds the value a chi-square statistic stays below
+   * 99.99% of the time, with the Wilson-Hilferty approximation.
+   * @param degrees Degrees of freedom
+   * @return The value
+   */
+  private static double chiSquareLimit(int degrees) {
+    double spread = 2.0 / (9 * degrees);
+    double cube = 1 - spread + Z_9999 * Math.sqrt(spread);
+    return degrees * cube * cube * cube;
+  }
+
+  /**
+   * Helper method that prints why the check failed and exits.
+   * @param reason Why the check failed
+   * @return Nothing.
+   */
+  private static void fail(String reason) {
+    System.out.print(reason);
+    System.exit(1);
+  }
+}
@@ -0,0 +1,607 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class collects the results of many simulated rounds: how often each
+ * outcome occurred for every seat, the expected value of a hand overall, by
+ * seat and by the dealer's face up card with their confidence intervals,
+ * histograms of the final totals, the money won by each seat and how often it
+ * ran out, how long the simulation took and how many bytes it allocated.
+ * Once a seat runs out of money its session is over, so the rounds it sits
+ * through until the next session are left out of its money.
+ * Everything is updated as rounds are added, so the memory used does not grow
+ * with the number of rounds, results collected on separate threads can be
+ * merged, and the results so far can be saved with a checkpoint and restored
+ * to go on adding rounds.
+ *
+ * @author Aimee Shao
+ */
+public class SimulationResult {
+
+  // Strings for the report
+  private static final String REPORT_STR = String.format("%s\n%s\n"
+      , "Simulated %d rounds (%d hands) in %.3f seconds."
+      , "Throughput: %.0f rounds/sec, %.0f hands/sec.");
+  private static final String RESULTS_STR = "Player results:\n";
+  private static final String PARTIAL_STR = "... %d rounds so far, expected"
+      + " value %+.4f +/- %.4f per hand.\n";
+  private static final String ALLOCATED_STR = "Allocated: %.3f bytes/round.\n";
+  private static final String OUTCOME_STR = "  %-12s %12d  (%6.2f%%)\n";
+  static final String[] OUTCOME_NAMES = {"wins", "wins (bust)"
+      , "loses (bust)", "ties", "loses", "surrenders", "blackjack"};
+  private static final String EV_STR = "Expected value: %+.4f +/- %.4f per"
+      + " hand (95%% confidence).\n";
+  private static final String SEATS_STR = String.format("%s\n%s\n"
+      , "Results by seat:"
+      , "  seat        EV    +/-     wins  w(bust)  l(bust)     ties    loses"
+      + "    surr.       bj");
+  private static final String SEAT_STR = "  %-4d   %+.4f %.4f";
+  private static final String SEAT_OUTCOME_STR = " %7.2f%%";
+  private static final String UP_CARDS_STR = "Expected value by dealer's face"
+      + " up card:\n";
+  private static final String UP_CARD_STR = "  %-3s  %+.4f +/- %.4f"
+      + "  (%d hands)\n";
+  private static final String[] UP_CARD_NAMES = {"", "A", "2", "3", "4", "5"
+      , "6", "7", "8", "9", "10"};
+  private static final String TOTALS_STR = String.format("%s\n%s\n"
+      , "Final totals:"
+      , "             <17      17      18      19      20      21    bust");
+  private static final String DEALER_TOTALS_STR = "  dealer";
+  private static final String PLAYER_TOTALS_STR = "  player";
+  private static final String TOTAL_STR = " %6.2f%%";
+  private static final String MONEY_STR = String.format("%s\n%s\n"
+      , "Money by seat over %d session(s) of at most %d rounds:"
+      , "  seat              won          wagered   return   ruined    rounds");
+  private static final String SEAT_MONEY_STR = "  %-4d %16s %16s  %+.4f"
+      + " %7.2f%% %9.1f\n";
+
+  // Amount won by a hand of each outcome, for a bet of 1
+  static final double[] PAYOFFS = {1, 1, -1, 0, -1, -0.5, 1.5};
+
+  // Amount won by insurance, which is half the bet and pays 2 to 1
+  private static final double INSURANCE_WINS = 1;
+  private static final double INSURANCE_LOSES = -0.5;
+
+  // Error when restoring
+  private static final String ERROR_OTHER_RESULT = "results are of %d"
+      + " player(s), not %d";
+
+  // Bins of the final total histograms: under 17, 17 to 21 and bust
+  private static final int MIN_TOTAL_BIN = Board.DEALER_MINIMUM - 1;
+  private static final int BUST_BIN = Player.BUST_NUM + 1 - MIN_TOTAL_BIN;
+  private static final int NUM_OF_TOTAL_BINS = BUST_BIN + 1;
+
+  private long rounds = 0; // number of rounds played
+  private long hands = 0; // number of player hands played
+  private long[] outcomeCounts; // number of hands with each outcome
+  private long[][] seatOutcomeCounts; // outcome counts of each seat from 1
+  private RunningStats value; // amount won by each seat in each round
+  private RunningStats[] seatValues; // amount won by each seat per round
+  private RunningStats[] upCardValues; // amount won against each face up
+                                       // value 1-10
+  private long[] dealerTotals; // histogram of the dealer's final totals
+  private long[] playerTotals; // histogram of the players' final totals
+  private long[] seatWon; // money won by each seat, in cents
+  private long[] seatWagered; // money wagered by each seat, in cents
+  private long[] seatRuins; // sessions in which each seat ran out of money
+  private long[] seatRounds; // rounds each seat played before running out
+  private boolean[] broke; // whether each seat ran out in this session
+  private long sessions = 0; // number of sessions, each from a fresh bankroll
+  private long sessionRounds = 0; // most rounds in a session
+  private long elapsedNanos = 0; // time taken to play the rounds
+  private long allocatedBytes = -1; // bytes allocated, -1 if not measured
+
+  /**
+   * Constructor for an empty result.
+   * @param numPlayers Number of players besides the dealer
+   */
+  SimulationResult(int numPlayers) {
+    outcomeCounts = new long[RoundResult.NUM_OF_OUTCOMES];
+    seatOutcomeCounts = new long[numPlayers + 1][RoundResult.NUM_OF_OUTCOMES];
+    value = new RunningStats();
+    seatValues = newStats(numPlayers + 1);
+    upCardValues = newStats(CompositionKey.NUM_OF_VALUES + 1);
+    dealerTotals = new long[NUM_OF_TOTAL_BINS];
+    playerTotals = new long[NUM_OF_TOTAL_BINS];
+    seatWon = new long[numPlayers + 1];
+    seatWagered = new long[numPlayers + 1];
+    seatRuins = new long[numPlayers + 1];
+    seatRounds = new long[numPlayers + 1];
+    broke = new boolean[numPlayers + 1];
+  }
+
+  /**
+   * Starts a new session, whose rounds are played from fresh bankrolls. The
+   * first round added starts the first session on its own.
+   * @return None.
+   */
+  public void startSession() {
+    if (rounds == 0)
+      return;
+
+    sessions += 1;
+    Arrays.fill(broke, false);
+  }
+
+  /**
+   * Sets the most rounds in a session, which is shown in the report.
+   * @param sessionRounds Most rounds in a session
+   * @return None.
+   */
+  public void setSessionRounds(long sessionRounds) {
+    this.sessionRounds = sessionRounds;
+  }
+
+  /**
+   * Adds the results of one round, to the session started last. A seat that
+   * ran out of money earlier in the session adds nothing to its money.
+   * @param round Results of the round
+   * @return None.
+   */
+  public void add(RoundResult round) {
+    RunningStats upCardValue = upCardValues[CompositionKey.valueOf(
+        round.getDealerUpCard())];
+    if (rounds == 0)
+      sessions = 1;
+
+    for (int p = 1; p <= round.getNumPlayers(); p++) {
+      hands += round.getNumHands(p);
+      for (int h = 0; h < round.getNumHands(p); h++) {
+        int outcome = round.getOutcome(p, h);
+        outcomeCounts[outcome] += 1;
+        seatOutcomeCounts[p][outcome] += 1;
+        playerTotals[totalBin(round.getPlayerTotal(p, h))] += 1;
+      }
+
+      double payoff = payoffOf(round, p);
+      value.add(payoff);
+      seatValues[p].add(payoff);
+      upCardValue.add(payoff);
+
+      // the seat's session is over once it ran out
+      if (broke[p])
+        continue;
+
+      seatWon[p] += round.getWon(p);
+      seatWagered[p] += round.getWagered(p);
+      seatRounds[p] += 1;
+      if (round.getBankroll(p) <= 0) {
+        broke[p] = true;
+        seatRuins[p] += 1;
+      }
+    }
+
+    dealerTotals[totalBin(round.getDealerTotal())] += 1;
+
+    rounds += 1;
+  }
+
+  /**
+   * Returns the units a seat won in a round, betting one unit per hand. The
+   * seat's hands after splitting count as one for the amount won.
+   * @param round Results of the round
+   * @param p Seat of the player, from 1
+   * @return Units won, negative if lost
+   */
+  static double payoffOf(RoundResult round, int p) {
+    double payoff = 0;
+    for (int h = 0; h < round.getNumHands(p); h++) {
+      int outcome = round.getOutcome(p, h);
+      payoff += round.isDoubled(p, h) ? 2 * PAYOFFS[outcome]
+          : PAYOFFS[outcome];
+    }
+
+    if (round.isInsured(p))
+      payoff += round.isDealerBlackjack() ? INSURANCE_WINS : INSURANCE_LOSES;
+
+    return payoff;
+  }
+
+  /**
+   * Adds the results of another simulation to this one. The elapsed time is
+   * not added since simulations may have run at the same time.
+   * @param other Results to add
+   * @return None.
+   */
+  public void merge(SimulationResult other) {
+    for (int o = 0; o < outcomeCounts.length; o++) {
+      outcomeCounts[o] += other.outcomeCounts[o];
+    }
+
+    for (int p = 1; p < seatValues.length; p++) {
+      for (int o = 0; o < outcomeCounts.length; o++) {
+        seatOutcomeCounts[p][o] += other.seatOutcomeCounts[p][o];
+      }
+      seatValues[p].merge(other.seatValues[p]);
+      seatWon[p] += other.seatWon[p];
+      seatWagered[p] += other.seatWagered[p];
+      seatRuins[p] += other.seatRuins[p];
+      seatRounds[p] += other.seatRounds[p];
+    }
+
+    for (int v = 1; v < upCardValues.length; v++) {
+      upCardValues[v].merge(other.upCardValues[v]);
+    }
+
+    for (int b = 0; b < NUM_OF_TOTAL_BINS; b++) {
+      dealerTotals[b] += other.dealerTotals[b];
+      playerTotals[b] += other.playerTotals[b];
+    }
+
+    value.merge(other.value);
+    hands += other.hands;
+    rounds += other.rounds;
+    sessions += other.sessions;
+    sessionRounds = Math.max(sessionRounds, other.sessionRounds);
+
+    if (other.allocatedBytes >= 0)
+      allocatedBytes = Math.max(allocatedBytes, 0) + other.allocatedBytes;
+  }
+
+  /**
+   * Returns the number of rounds played.
+   * @return Number of rounds
+   */
+  public long getRounds() {
+    return rounds;
+  }
+
+  /**
+   * Returns the number of player hands played.
+   * @return Number of hands
+   */
+  public long getHands() {
+    return hands;
+  }
+
+  /**
+   * Returns how many hands had the given outcome.
+   * @param outcome One of RoundResult's outcome constants
+   * @return Number of hands with the outcome
+   */
+  public long getOutcomeCount(int outcome) {
+    return outcomeCounts[outcome];
+  }
+
+  /**
+   * Returns the statistics of the amount won by a hand, for a bet of 1.
+   * @return Statistics of every hand
+   */
+  public RunningStats getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the statistics of the amount won by a seat's hands.
+   * @param seat Seat of the player, starting from 1
+   * @return Statistics of the seat's hands
+   */
+  public RunningStats getSeatValue(int seat) {
+    return seatValues[seat];
+  }
+
+  /**
+   * Returns the money won by a seat.
+   * @param seat Seat of the player, starting from 1
+   * @return Money won in cents, negative if lost
+   */
+  public long getSeatWon(int seat) {
+    return seatWon[seat];
+  }
+
+  /**
+   * Returns the money wagered by a seat.
+   * @param seat Seat of the player, starting from 1
+   * @return Money wagered in cents
+   */
+  public long getSeatWagered(int seat) {
+    return seatWagered[seat];
+  }
+
+  /**
+   * Returns in how many sessions a seat ran out of money.
+   * @param seat Seat of the player, starting from 1
+   * @return Number of sessions
+   */
+  public long getSeatRuins(int seat) {
+    return seatRuins[seat];
+  }
+
+  /**
+   * Returns how many rounds a seat played with money, leaving out the rounds
+   * of each session after it ran out.
+   * @param seat Seat of the player, starting from 1
+   * @return Number of rounds
+   */
+  public long getSeatRounds(int seat) {
+    return seatRounds[seat];
+  }
+
+  /**
+   * Returns the number of sessions, each played from a fresh bankroll.
+   * @return Number of sessions
+   */
+  public long getSessions() {
+    return sessions;
+  }
+
+  /**
+   * Returns the statistics of the amount won against a face up card.
+   * @param upCard Number 1-13 of the dealer's face up card
+   * @return Statistics of the hands against the card
+   */
+  public RunningStats getUpCardValue(int upCard) {
+    return upCardValues[CompositionKey.valueOf(upCard)];
+  }
+
+  /**
+   * Returns how long the rounds took to play.
+   * @return Elapsed time in nanoseconds
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Sets how long the rounds took to play.
+   * @param nanos Elapsed time in nanoseconds
+   * @return None.
+   */
+  public void setElapsedNanos(long nanos) {
+    elapsedNanos = nanos;
+  }
+
+  /**
+   * Returns how many bytes the rounds allocated.
+   * @return Allocated bytes, or -1 if not measured
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * Sets how many bytes the rounds allocated.
+   * @param bytes Allocated bytes
+   * @return None.
+   */
+  public void setAllocatedBytes(long bytes) {
+    allocatedBytes = bytes;
+  }
+
+  /**
+   * Returns the report of the simulation as a string.
+   * @return The report
+   */
+  public String toString() {
+    double seconds = elapsedNanos / 1e9;
+    StringBuilder report = new StringBuilder(String.format(REPORT_STR, rounds
+        , hands, seconds, rounds / seconds, hands / seconds));
+
+    if (allocatedBytes >= 0)
+      report.append(String.format(ALLOCATED_STR
+          , (double) allocatedBytes / rounds));
+
+    report.append(String.format(EV_STR, value.getMean(), value.getError()));
+
+    report.append(RESULTS_STR);
+    for (int o = 0; o < outcomeCounts.length; o++) {
+      report.append(String.format(OUTCOME_STR, OUTCOME_NAMES[o]
+          , outcomeCounts[o], 100.0 * outcomeCounts[o] / sum(outcomeCounts)));
+    }
+
+    report.append(SEATS_STR);
+    for (int p = 1; p < seatValues.length; p++) {
+      long seatHands = sum(seatOutcomeCounts[p]); // with split hands
+      report.append(String.format(SEAT_STR, p, seatValues[p].getMean()
+          , seatValues[p].getError()));
+      for (int o = 0; o < outcomeCounts.length; o++) {
+        report.append(String.format(SEAT_OUTCOME_STR
+            , 100.0 * seatOutcomeCounts[p][o] / seatHands));
+      }
+      report.append('\n');
+    }
+
+    report.append(String.format(MONEY_STR, sessions, sessionRounds));
+    for (int p = 1; p < seatValues.length; p++) {
+      report.append(String.format(SEAT_MONEY_STR, p
+          , Board.moneyToString(seatWon[p])
+          , Board.moneyToString(seatWagered[p])
+          , seatWagered[p] == 0 ? 0 : (double) seatWon[p] / seatWagered[p]
+          , 100.0 * seatRuins[p] / Math.max(sessions, 1)
+          , (double) seatRounds[p] / Math.max(sessions, 1)));
+    }
+
+    report.append(UP_CARDS_STR);
+    for (int v = 1; v < upCardValues.length; v++) {
+      report.append(String.format(UP_CARD_STR, UP_CARD_NAMES[v]
+          , upCardValues[v].getMean(), upCardValues[v].getError()
+          , upCardValues[v].getCount()));
+    }
+
+    report.append(TOTALS_STR);
+    appendTotals(report, DEALER_TOTALS_STR, dealerTotals, rounds);
+    appendTotals(report, PLAYER_TOTALS_STR, playerTotals
+        , sum(outcomeCounts));
+
+    return report.toString();
+  }
+
+  /**
+   * Returns a short report of the expected value so far, printed while a
+   * simulation is still running.
+   * @return The short report
+   */
+  public String toPartialString() {
+    return String.format(PARTIAL_STR, rounds, value.getMean()
+        , value.getError());
+  }
+
+  /**
+   * Returns the number of bytes saveState writes.
+   * @return Size of the state
+   */
+  public int getStateSize() {
+    int seats = seatValues.length;
+    return Integer.BYTES + 6 * Long.BYTES
+        + (outcomeCounts.length * (seats + 1) + 2 * NUM_OF_TOTAL_BINS
+        + 4 * seats) * Long.BYTES + seats
+        + (1 + seats + upCardValues.length) * RunningStats.STATE_SIZE;
+  }
+
+  /**
+   * Writes every count and statistic, so the results can be restored and
+   * more rounds added to them.
+   * @param buffer Buffer to write to, with getStateSize bytes left
+   * @return None.
+   */
+  public void saveState(ByteBuffer buffer) {
+    buffer.putInt(seatValues.length - 1).putLong(rounds).putLong(hands)
+        .putLong(sessions).putLong(sessionRounds).putLong(elapsedNanos)
+        .putLong(allocatedBytes);
+    putLongs(buffer, outcomeCounts);
+    for (int p = 0; p < seatOutcomeCounts.length; p++) {
+      putLongs(buffer, seatOutcomeCounts[p]);
+    }
+    putLongs(buffer, dealerTotals);
+    putLongs(buffer, playerTotals);
+    putLongs(buffer, seatWon);
+    putLongs(buffer, seatWagered);
+    putLongs(buffer, seatRuins);
+    putLongs(buffer, seatRounds);
+    for (int p = 0; p < broke.length; p++) {
+      buffer.put(broke[p] ? (byte) 1 : (byte) 0);
+    }
+
+    value.saveState(buffer);
+    for (int p = 0; p < seatValues.length; p++) {
+      seatValues[p].saveState(buffer);
+    }
+    for (int v = 0; v < upCardValues.length; v++) {
+      upCardValues[v].saveState(buffer);
+    }
+  }
+
+  /**
+   * Reads a state written by saveState of results with the same number of
+   * players, replacing the current one.
+   * @param buffer Buffer to read from
+   * @return None.
+   * @throws IllegalArgumentException If the state is of another number of
+   *                                  players
+   */
+  public void restoreState(ByteBuffer buffer) {
+    int numPlayers = buffer.getInt();
+    if (numPlayers != seatValues.length - 1)
+      throw new IllegalArgumentException(String.format(ERROR_OTHER_RESULT
+          , numPlayers, seatValues.length - 1));
+
+    rounds = buffer.getLong();
+    hands = buffer.getLong();
+    sessions = buffer.getLong();
+    sessionRounds = buffer.getLong();
+    elapsedNanos = buffer.getLong();
+    allocatedBytes = buffer.getLong();
+    getLongs(buffer, outcomeCounts);
+    for (int p = 0; p < seatOutcomeCounts.length; p++) {
+      getLongs(buffer, seatOutcomeCounts[p]);
+    }
+    getLongs(buffer, dealerTotals);
+    getLongs(buffer, playerTotals);
+    getLongs(buffer, seatWon);
+    getLongs(buffer, seatWagered);
+    getLongs(buffer, seatRuins);
+    getLongs(buffer, seatRounds);
+    for (int p = 0; p < broke.length; p++) {
+      broke[p] = buffer.get() != 0;
+    }
+
+    value.restoreState(buffer);
+    for (int p = 0; p < seatValues.length; p++) {
+      seatValues[p].restoreState(buffer);
+    }
+    for (int v = 0; v < upCardValues.length; v++) {
+      upCardValues[v].restoreState(buffer);
+    }
+  }
+
+  /**
+   * Helper method that writes counts to a buffer.
+   * @param buffer Buffer to write to
+   * @param counts The counts to write
+   * @return None.
+   */
+  private static void putLongs(ByteBuffer buffer, long[] counts) {
+    for (long count : counts) {
+      buffer.putLong(count);
+    }
+  }
+
+  /**
+   * Helper method that reads counts from a buffer.
+   * @param buffer Buffer to read from
+   * @param counts Array the counts are read into
+   * @return None.
+   */
+  private static void getLongs(ByteBuffer buffer, long[] counts) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = buffer.getLong();
+    }
+  }
+
+  /**
+   * Helper method that appends a row of a final total histogram to a report.
+   * @param report Report to append to
+   * @param name Name of the row
+   * @param totals Histogram of the totals
+   * @param count Number of totals in the histogram
+   * @return None.
+   */
+  private static void appendTotals(StringBuilder report, String name
+      , long[] totals, long count) {
+    report.append(name);
+    for (int b = 0; b < totals.length; b++) {
+      report.append(String.format(TOTAL_STR, 100.0 * totals[b] / count));
+    }
+    report.append('\n');
+  }
+
+  /**
+   * Helper method that finds the histogram bin of a final total.
+   * @param total Final total
+   * @return Bin of the total
+   */
+  private static int totalBin(int total) {
+    if (total > Player.BUST_NUM)
+      return BUST_BIN;
+
+    return Math.max(total - MIN_TOTAL_BIN, 0);
+  }
+
+  /**
+   * Helper method that adds up counts.
+   * @param counts The counts to add up
+   * @return Sum of the counts
+   */
+  private static long sum(long[] counts) {
+    long sum = 0;
+    for (long count : counts) {
+      sum += count;
+    }
+
+    return sum;
+  }
+
+  /**
+   * Helper method that creates empty statistics.
+   * @param length Number of statistics
+   * @return Array of empty statistics
+   */
+  private static RunningStats[] newStats(int length) {
+    RunningStats[] stats = new RunningStats[length];
+    for (int i = 0; i < length; i++) {
+      stats[i] = new RunningStats();
+    }
+
+    return stats;
+  }
+}
@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Simulator plays many rounds of Blackjack on a Board without printing
+ * anything, so that strategies can be evaluated offline. It also measures how
+ * many bytes the rounds allocate, which should be zero once warmed up.
+ *
+ * The rounds are played in sessions of a fixed number of rounds, counted from
+ * the first round the board played. Every session starts from fresh
+ * bankrolls, and a seat that runs out of money sits out the rest of its
+ * session as far as its money is concerned.
+ *
+ * With a checkpointer, the board and the results so far are saved every so
+ * often between rounds, so a long simulation can be restored and continue
+ * where it stopped, and its report covers the rounds before the restart too.
+ *
+ * @author Aimee Shao
+ */
+public class Simulator {
+
+  // Measures bytes allocated by a thread, if the JVM supports it
+  private static final com.sun.management.ThreadMXBean THREADS =
+      allocationBean();
+
+  // Most rounds in a session unless set
+  static final long DEFAULT_SESSION_ROUNDS = 1000;
+
+  // Rounds played between looking at the clock for the next checkpoint
+  private static final int CHECKPOINT_CHECK_MASK = (1 << 10) - 1;
+
+  private Board board; // board the rounds are played on
+  private Policy policy; // decides when the players hit
+  private int numPlayers; // number of players besides the dealer
+  private long numRounds = 0; // rounds played on the board, counting the
+                              // ones before it was restored
+  private long bankroll = Player.DEFAULT_BANKROLL; // of each player, in cents
+  private long sessionRounds = DEFAULT_SESSION_ROUNDS; // rounds in a session
+  private Checkpointer checkpointer = null; // saves the board, if any
+  private long checkpointNanos; // time between checkpoints
+  private SimulationResult restored = null; // results of the rounds before
+                                            // the board was restored, if any
+
+  /**
+   * Constructor for the simulator.
+   * @param numPlayers Number of players besides the dealer
+   * @param policy Policy used by every player
+   */
+  Simulator(int numPlayers, Policy policy) {
+    this(numPlayers, new Rules(), policy, new CardRandom());
+  }
+
+  /**
+   * Constructor for the simulator dealing from the given random generator.
+   * @param numPlayers Number of players besides the dealer
+   * @param rules Rules of the table
+   * @param policy Policy used by every player
+   * @param rand Random generator used in dealing cards
+   */
+  Simulator(int numPlayers, Rules rules, Policy policy, CardRandom rand) {
+    board = new Board(numPlayers, rules, new NullOutput(), rand);
+    this.policy = policy;
+    this.numPlayers = numPlayers;
+  }
+
+  /**
+   * Plays the given number of rounds and collects their results. After the
+   * board was restored, the results also cover the rounds played before.
+   * @param rounds Number of rounds to play
+   * @return Results of all the rounds
+   */
+  public SimulationResult run(long rounds) {
+    SimulationResult result = restored != null ? restored
+        : new SimulationResult(numPlayers);
+    restored = null;
+    result.setSessionRounds(sessionRounds);
+    long startNanos = result.getElapsedNanos();
+    long startAllocated = Math.max(result.getAllocatedBytes(), 0);
+    long startBytes = allocatedBytes();
+    long start = System.nanoTime();
+
+    long nextCheckpoint = start + checkpointNanos;
+
+    for (long r = 0; r < rounds; r++) {
+      if (numRounds > 0 && numRounds % sessionRounds == 0) {
+        board.setBankrolls(bankroll);
+        result.startSession();
+      }
+
+      result.add(board.playRound(policy));
+      numRounds += 1;
+
+      if (checkpointer != null && checkpointNanos > 0
+          && (numRounds & CHECKPOINT_CHECK_MASK) == 0
+          && System.nanoTime() >= nextCheckpoint) {
+        setCosts(result, startNanos + System.nanoTime() - start
+            , startAllocated, startBytes);
+        checkpointer.save(board, result, numRounds);
+        nextCheckpoint = System.nanoTime() + checkpointNanos;
+      }
+    }
+
+    setCosts(result, startNanos + System.nanoTime() - start, startAllocated
+        , startBytes);
+
+    // the last checkpoint is never skipped
+    if (checkpointer != null) {
+      checkpointer.flush();
+      checkpointer.save(board, result, numRounds);
+    }
+
+    return result;
+  }
+
+  /**
+   * Helper method that sets how long the rounds took and how many bytes they
+   * allocated, counting the ones before the board was restored.
+   * @param result Results of the rounds
+   * @param elapsedNanos Time taken so far in nanoseconds
+   * @param startAllocated Bytes allocated before the board was restored
+   * @param startBytes Bytes the thread allocated before this run, or -1 if
+   *                   not measured
+   * @return None.
+   */
+  private static void setCosts(SimulationResult result, long elapsedNanos
+      , long startAllocated, long startBytes) {
+    result.setElapsedNanos(elapsedNanos);
+    if (startBytes >= 0)
+      result.setAllocatedBytes(startAllocated + allocatedBytes() - startBytes);
+  }
+
+  /**
+   * Sets how the players bet and the bankroll they start every session with.
+   * @param betPolicy Policy deciding the bets
+   * @param bankroll Money of each player, in cents
+   * @return None.
+   */
+  public void setBetting(BetPolicy betPolicy, long bankroll) {
+    board.setBetPolicy(betPolicy);
+    board.setBankrolls(bankroll);
+    this.bankroll = bankroll;
+  }
+
+  /**
+   * Sets the most rounds in a session, after which the players start again
+   * from their bankrolls.
+   * @param sessionRounds Rounds in a session, at least 1
+   * @return None.
+   */
+  public void setSessionRounds(long sessionRounds) {
+    this.sessionRounds = sessionRounds;
+  }
+
+  /**
+   * Sets the recorder that records every round played from now on.
+   * @param recorder Recorder of the rounds, or null to stop recording
+   * @return None.
+   */
+  public void setRecorder(HandRecorder recorder) {
+    board.setRecorder(recorder);
+  }
+
+  /**
+   * Deals every round from now on from a shoe of its own, keyed by the seed
+   * and the number of the round, so any rounds can be played without the
+   * ones before them.
+   * @param seed Seed the rounds are keyed by
+   * @param firstRound Number of the next round, from 1
+   * @return None.
+   */
+  public void setCounterRounds(long seed, long firstRound) {
+    board.setCounterRounds(seed, firstRound);
+  }
+
+  /**
+   * Sets the publisher that publishes the events of every round played from
+   * now on.
+   * @param events Publisher of the events, or null to stop publishing
+   * @return None.
+   */
+  public void setEvents(GameEventPublisher events) {
+    board.setEvents(events);
+  }
+
+  /**
+   * Sets the checkpointer that saves the board every so often while rounds
+   * are played, and once more after the last round.
+   * @param checkpointer Checkpointer saving the board, or null for none
+   * @param seconds Seconds between checkpoints, or 0 to save only after the
+   *                last round
+   * @return None.
+   */
+  public void setCheckpointer(Checkpointer checkpointer, int seconds) {
+    this.checkpointer = checkpointer;
+    checkpointNanos = TimeUnit.SECONDS.toNanos(seconds);
+  }
+
+  /**
+   * Restores the board and the results of its rounds from a checkpoint, so
+   * the next rounds are the ones the saved board would have played and are
+   * added to the saved results.
+   * @param file File the checkpoint was saved to
+   * @return None.
+   * @throws IOException If the checkpoint cannot be read or is of another
+   *                     game
+   */
+  public void restore(Path file) throws IOException {
+    SimulationResult result = new SimulationResult(numPlayers);
+    numRounds = Checkpointer.restore(file, board, result);
+    restored = result;
+  }
+
+  /**
+   * Returns the number of rounds played on the board, including the ones
+   * played before it was restored.
+   * @return Number of rounds
+   */
+  public long getNumRounds() {
+    return numRounds;
+  }
+
+  /**
+   * Returns the number of bytes the current thread allocated so far.
+   * @return Allocated bytes, or -1 if the JVM cannot measure them
+   */
+  static long allocatedBytes() {
+    if (THREADS == null)
+      return -1;
+
+    return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Helper method that gets the bean measuring allocated bytes.
+   * @return The bean, or null if the JVM does not support it
+   */
+  private static com.sun.management.ThreadMXBean allocationBean() {
+    java.lang.management.ThreadMXBean bean =
+        ManagementFactory.getThreadMXBean();
+
+    if (!(bean instanceof com.sun.management.ThreadMXBean))
+      return null;
+
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) bean;
+    if (!threads.isThreadAllocatedMemorySupported())
+      return null;
+
+    threads.setThreadAllocatedMemoryEnabled(true);
+    return threads;
+  }
+}
@@ -0,0 +1,200 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * StrategyTable is a basic strategy: whether to hit or stay for every hard and
+ * soft total against every face up card of the dealer. Tables are generated
+ * for a set of rules with the Advisor and saved to a small binary file. Loaded
+ * tables are memory-mapped, so loading one is fast no matter how many tables
+ * are on disk, and a decision is a single lookup.
+ *
+ * Since the Advisor plays a real shoe, where every card left is equally
+ * likely, the tables are basic strategy for a real shoe. The game's Shoe
+ * deals every card number left with equal chances whatever its count, so a
+ * table can be a little off the best play for the game as dealt on totals
+ * where hitting and staying are close.
+ *
+ * File format: a header of the magic number, the format version, the number
+ * of decks and whether the dealer hits a soft 17, followed by one byte per
+ * (softness, total, face up card), 1 to hit and 0 to stay.
+ *
+ * @author Aimee Shao
+ */
+public class StrategyTable implements Policy {
+
+  // Header of the file
+  private static final int MAGIC = 0x424A5354; // "BJST"
+  private static final short VERSION = 2;
+  private static final int HEADER_SIZE = 12;
+  private static final int NUM_DECKS_POS = Integer.BYTES + Short.BYTES;
+  private static final int HIT_SOFT_17_POS = NUM_DECKS_POS + Short.BYTES;
+
+  // Size of the table
+  private static final int NUM_OF_TOTALS = Player.BUST_NUM + 1;
+  private static final int NUM_OF_UP_VALUES = CompositionKey.NUM_OF_VALUES;
+  private static final int TABLE_SIZE = 2 * NUM_OF_TOTALS * NUM_OF_UP_VALUES;
+
+  // Smallest totals a player can have after the first two cards
+  private static final int MIN_HARD_TOTAL = 4;
+  private static final int MIN_SOFT_TOTAL = 12;
+
+  // Decisions stored in the table
+  private static final byte STAY = 0;
+  private static final byte HIT = 1;
+
+  // Errors when loading
+  private static final String ERROR_NOT_TABLE = "%s is not a strategy table";
+  private static final String ERROR_RULES = "%s was generated for %d deck(s)"
+      + ", not %d";
+  private static final String ERROR_SOFT_17 = "%s was generated for a dealer"
+      + " who %s soft 17";
+  private static final String HITS_STR = "hits";
+  private static final String STAYS_STR = "stays on";
+
+  private ByteBuffer table; // the decisions, after the header
+  private int numDecks; // number of decks the table was generated for
+  private boolean hitSoft17; // whether the dealer hits a soft 17
+
+  /**
+   * Constructor for a table over the given buffer.
+   * @param table Buffer holding the header and the decisions
+   */
+  private StrategyTable(ByteBuffer table) {
+    this.table = table;
+    numDecks = table.getShort(NUM_DECKS_POS);
+    hitSoft17 = table.getShort(HIT_SOFT_17_POS) != 0;
+  }
+
+  /**
+   * Generates the table for a set of rules. The decisions are for a shoe
+   * that is full except for the dealer's face up card.
+   * @param rules Rules to generate the table for
+   * @return The generated table
+   */
+  public static StrategyTable generate(Rules rules) {
+    ByteBuffer table = ByteBuffer.allocate(HEADER_SIZE + TABLE_SIZE);
+    table.putInt(MAGIC).putShort(VERSION).putShort((short) rules.getNumDecks())
+        .putShort((short) (rules.hitsSoft17() ? 1 : 0)).putShort((short) 0);
+
+    Advisor advisor = new Advisor(new DealerOdds(NUM_OF_UP_VALUES
+        , rules.hitsSoft17()), NUM_OF_UP_VALUES);
+    int[] deck = new int[Shoe.NUM_OF_NUMBERS];
+    double[] values = new double[2];
+
+    for (int soft = 0; soft < 2; soft++) {
+      int minTotal = soft == 1 ? MIN_SOFT_TOTAL : MIN_HARD_TOTAL;
+
+      for (int total = 0; total < NUM_OF_TOTALS; total++) {
+        for (int upValue = 1; upValue <= NUM_OF_UP_VALUES; upValue++) {
+          byte decision = HIT; // totals that cannot happen
+
+          if (total >= minTotal) {
+            // full shoe without the dealer's face up card
+            for (int i = 0; i < deck.length; i++) {
+              deck[i] = Shoe.NUM_OF_SUITS * rules.getNumDecks();
+            }
+            deck[upValue - 1] -= 1;
+
+            advisor.advise(total, soft == 1, upValue, deck, values);
+            decision = values[Advisor.HIT] > values[Advisor.STAY] ? HIT : STAY;
+          }
+
+          table.put(decision);
+        }
+      }
+    }
+
+    return new StrategyTable(table);
+  }
+
+  /**
+   * Loads a table by memory-mapping its file.
+   * @param file File holding the table
+   * @param rules Rules the table must have been generated for
+   * @return The loaded table
+   * @throws IOException If the file cannot be read or is not a table for
+   *                     the rules
+   */
+  public static StrategyTable load(Path file, Rules rules) throws IOException {
+    MappedByteBuffer table;
+    try (FileChannel channel = FileChannel.open(file
+        , StandardOpenOption.READ)) {
+      if (channel.size() != HEADER_SIZE + TABLE_SIZE)
+        throw new IOException(String.format(ERROR_NOT_TABLE, file));
+
+      table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if (table.getInt(0) != MAGIC || table.getShort(Integer.BYTES) != VERSION)
+      throw new IOException(String.format(ERROR_NOT_TABLE, file));
+
+    StrategyTable strategy = new StrategyTable(table);
+    if (strategy.numDecks != rules.getNumDecks()) {
+      throw new IOException(String.format(ERROR_RULES, file
+          , strategy.numDecks, rules.getNumDecks()));
+    }
+    if (strategy.hitSoft17 != rules.hitsSoft17()) {
+      throw new IOException(String.format(ERROR_SOFT_17, file
+          , strategy.hitSoft17 ? HITS_STR : STAYS_STR));
+    }
+
+    return strategy;
+  }
+
+  /**
+   * Saves the table to a file.
+   * @param file File to write
+   * @return None.
+   * @throws IOException If the file cannot be written
+   */
+  public void save(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file
+        , StandardOpenOption.CREATE, StandardOpenOption.WRITE
+        , StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer contents = table.duplicate();
+      contents.clear();
+
+      while (contents.hasRemaining()) {
+        channel.write(contents);
+      }
+    }
+  }
+
+  /**
+   * Returns whether to hit on a total against the dealer's face up card.
+   * @param total Player's total, not busted
+   * @param soft Whether the player has an ace counted as 11
+   * @param upCard Number 1-13 of the dealer's face up card
+   * @return true to hit, false to stay
+   */
+  public boolean shouldHit(int total, boolean soft, int upCard) {
+    int index = ((soft ? NUM_OF_TOTALS : 0) + total) * NUM_OF_UP_VALUES
+        + CompositionKey.valueOf(upCard) - 1;
+
+    return table.get(HEADER_SIZE + index) == HIT;
+  }
+
+  /**
+   * Decides whether the player should hit by looking up the table.
+   * @param player The player whose turn it is
+   * @param dealerUpCard Number of the dealer's face up card
+   * @return true to hit, false to stay
+   */
+  public boolean shouldHit(Player player, int dealerUpCard) {
+    // a busted total is never looked up, since hitting stops on bust
+    return shouldHit(player.getTotal(), player.getAceAsElevenCount() > 0
+        , dealerUpCard);
+  }
+
+  /**
+   * Returns the number of decks the table was generated for.
+   * @return Number of decks
+   */
+  public int getNumDecks() {
+    return numDecks;
+  }
+}
@@ -0,0 +1,418 @@
+/**
+ * TableBatch plays rounds at many independent tables at once, each with a
+ * dealer and one player who only hits or stays. Instead of a Board with
+ * Player and Hand objects per table, the state of every table is kept in
+ * parallel primitive arrays: the count of each card number left in each shoe,
+ * the numbers left, the state of each random generator, and the totals, soft
+ * aces and number of cards of each player and dealer.
+ *
+ * A round first deals each of the four starting cards to every table, then
+ * works out the starting hands of all the tables in one loop without
+ * branches, which the JIT can turn into vector instructions. Hitting is done
+ * table by table, since in lockstep every table would wait for the longest
+ * hand of the batch.
+ *
+ * Each table deals exactly the cards a Board with one player would deal from
+ * the same random generator, and its outcomes are the same as the Board's.
+ * The player's policy is looked up in a table of its decisions for every
+ * total, so it may only decide on the total, whether it is soft and the
+ * dealer's face up card, as ThresholdPolicy and StrategyTable do.
+ *
+ * @author Aimee Shao
+ */
+public class TableBatch {
+
+  // Value added to a total by each card number; an ace is added as 11
+  private static final int[] VALUES = {0, 11, 2, 3, 4, 5, 6, 7, 8, 9, 10, 10
+      , 10, 10};
+  private static final int ACE_VALUE = 11;
+  private static final int ACE_AS_ONE = ACE_VALUE - 10; // taken off when an
+                                                        // ace counts as 1
+
+  // Lowest total each policy decision is looked up for
+  private static final int MIN_HARD_TOTAL = 4;
+  private static final int MIN_SOFT_TOTAL = 12;
+  static final int NUM_OF_TOTALS = Player.BUST_NUM + 1;
+  private static final int NUM_OF_UP_VALUES = CompositionKey.NUM_OF_VALUES;
+  private static final int NUM_OF_NUMBERS = Shoe.NUM_OF_NUMBERS;
+
+  // Outcomes by whether the player and dealer have a blackjack and their
+  // totals, with every bust total as 22
+  private static final int NUM_OF_SUMS = Player.BUST_NUM + 2;
+  private static final byte[] OUTCOMES = buildOutcomes();
+
+  // Errors in the arguments
+  private static final String ERROR_OPTIONS = "tables of a batch only hit and"
+      + " stay, so no rule options besides h17 are allowed";
+  private static final String ERROR_BUFFER = "buffer holds %d outcomes, not %d";
+
+  private int numTables; // number of tables
+  private int shoeSize; // number of cards in each shoe
+  private int cutCard; // cards left when the cut card comes out
+  private int dealerSoftStand; // dealer stays on soft totals from this
+  private byte[] hits; // 1 where the policy hits, by soft, total and up value
+
+  // shoes, one after another: the counts and the numbers left of table t
+  // start at t * NUM_OF_NUMBERS, the numbers left in order as in Shoe
+  private int[] counts;
+  private byte[] numbersLeft;
+  private int[] numNumbersLeft;
+  private int[] cardsLeft;
+  private long[] seeds; // state of each table's random generator
+  private long[] gammas;
+
+  // hands of the players and dealers
+  private int[] playerTotals;
+  private int[] playerSoft; // 1 if an ace is counted as 11
+  private int[] playerSizes; // number of cards
+  private int[] dealerTotals;
+  private int[] dealerSoft;
+  private int[] dealerSizes;
+  private int[] upValues; // value 1-10 of each dealer's face up card
+  private int[] firstValues; // values of the starting cards being dealt
+  private int[] secondValues;
+
+  /**
+   * Constructor for the batch. The generator of each table is split from the
+   * given one in table order.
+   * @param numTables Number of tables
+   * @param rules Rules of every table, without options besides HIT_SOFT_17
+   * @param policy Policy of every player, deciding on the total, whether it
+   *               is soft and the dealer's face up card
+   * @param rand Generator the tables' generators are split from
+   * @throws IllegalArgumentException If the rules allow more than hit and stay
+   */
+  TableBatch(int numTables, Rules rules, Policy policy, CardRandom rand) {
+    if ((rules.getOptions() & ~Rules.HIT_SOFT_17) != 0)
+      throw new IllegalArgumentException(ERROR_OPTIONS);
+
+    this.numTables = numTables;
+    shoeSize = Shoe.NUM_OF_NUMBERS * Shoe.NUM_OF_SUITS * rules.getNumDecks();
+    cutCard = shoeSize - shoeSize * rules.getPenetration() / 100;
+    dealerSoftStand = rules.hitsSoft17() ? Board.DEALER_MINIMUM + 1
+        : Board.DEALER_MINIMUM;
+    hits = decisionsOf(policy);
+
+    counts = new int[numTables * NUM_OF_NUMBERS];
+    numbersLeft = new byte[numTables * NUM_OF_NUMBERS];
+    numNumbersLeft = new int[numTables];
+    cardsLeft = new int[numTables];
+    seeds = new long[numTables];
+    gammas = new long[numTables];
+    for (int t = 0; t < numTables; t++) {
+      rand.split().copyState(seeds, gammas, t);
+    }
+
+    playerTotals = new int[numTables];
+    playerSoft = new int[numTables];
+    playerSizes = new int[numTables];
+    dealerTotals = new int[numTables];
+    dealerSoft = new int[numTables];
+    dealerSizes = new int[numTables];
+    upValues = new int[numTables];
+    firstValues = new int[numTables];
+    secondValues = new int[numTables];
+  }
+
+  /**
+   * Plays one round at every table.
+   * @param outcomes Buffer for the outcome of each table's player, one of
+   *                 RoundResult's outcomes besides SURRENDERS
+   * @return None.
+   * @throws IllegalArgumentException If the buffer is not one per table
+   */
+  public void playRound(int[] outcomes) {
+    if (outcomes.length != numTables)
+      throw new IllegalArgumentException(String.format(ERROR_BUFFER
+          , outcomes.length, numTables));
+
+    // reshuffle between rounds once the cut card came out
+    for (int t = 0; t < numTables; t++) {
+      if (cardsLeft[t] <= cutCard)
+        refill(t);
+    }
+
+    // two cards to the dealer, then two to the player, as a Board deals
+    dealAll(firstValues);
+    dealAll(secondValues);
+    startHands(dealerTotals, dealerSoft, dealerSizes);
+    for (int t = 0; t < numTables; t++) {
+      int value = firstValues[t];
+      upValues[t] = value - ((ACE_VALUE - 1 - value) >>> 31) * ACE_AS_ONE;
+    }
+    dealAll(firstValues);
+    dealAll(secondValues);
+    startHands(playerTotals, playerSoft, playerSizes);
+
+    // players hit while the policy says so, then the dealers
+    for (int t = 0; t < numTables; t++) {
+      playPlayer(t);
+    }
+    for (int t = 0; t < numTables; t++) {
+      playDealer(t);
+    }
+
+    // a lookup instead of comparing, since the outcomes are random
+    for (int t = 0; t < numTables; t++) {
+      int player = Math.min(playerTotals[t], NUM_OF_SUMS - 1);
+      int dealer = Math.min(dealerTotals[t], NUM_OF_SUMS - 1);
+      int naturals = (playerSizes[t] == 2 ? 2 : 0)
+          + (dealerSizes[t] == 2 ? 1 : 0);
+      outcomes[t] = OUTCOMES[(naturals * NUM_OF_SUMS + player) * NUM_OF_SUMS
+          + dealer];
+    }
+  }
+
+  /**
+   * Returns the number of tables.
+   * @return Number of tables
+   */
+  public int getNumTables() {
+    return numTables;
+  }
+
+  /**
+   * Returns the final total of a table's player in the last round.
+   * @param t Index of the table
+   * @return Total of the player
+   */
+  public int getPlayerTotal(int t) {
+    return playerTotals[t];
+  }
+
+  /**
+   * Returns the final total of a table's dealer in the last round.
+   * @param t Index of the table
+   * @return Total of the dealer
+   */
+  public int getDealerTotal(int t) {
+    return dealerTotals[t];
+  }
+
+  /**
+   * Helper method that deals a card to every table.
+   * @param values Where the value of each table's card is put
+   * @return None.
+   */
+  private void dealAll(int[] values) {
+    for (int t = 0; t < numTables; t++) {
+      values[t] = deal(t);
+    }
+  }
+
+  /**
+   * Helper method that makes the starting hand of every table from the two
+   * cards dealt. The loop has no branches: each ace is counted as 11, and a
+   * second ace is changed to 1.
+   * @param totals Totals of the hands
+   * @param soft 1 for each hand with an ace counted as 11
+   * @param sizes Number of cards of each hand
+   * @return None.
+   */
+  private void startHands(int[] totals, int[] soft, int[] sizes) {
+    int[] first = firstValues;
+    int[] second = secondValues;
+
+    for (int t = 0; t < numTables; t++) {
+      int total = first[t] + second[t];
+      int aces = ((ACE_VALUE - 1 - first[t]) >>> 31)
+          + ((ACE_VALUE - 1 - second[t]) >>> 31);
+
+      // 1 when two aces made 22, otherwise 0
+      int demote = (Player.BUST_NUM - total) >>> 31;
+      totals[t] = total - demote * (ACE_VALUE - ACE_AS_ONE);
+      soft[t] = aces - demote;
+      sizes[t] = 2;
+    }
+  }
+
+  /**
+   * Helper method that hits a table's player while the policy says so.
+   * @param t Index of the table
+   * @return None.
+   */
+  private void playPlayer(int t) {
+    int total = playerTotals[t];
+    int soft = playerSoft[t];
+    int size = playerSizes[t];
+    int up = upValues[t] - 1;
+
+    while (total <= Player.BUST_NUM && hits[(soft * NUM_OF_TOTALS + total)
+        * NUM_OF_UP_VALUES + up] != 0) {
+      int value = deal(t);
+      total += value;
+      soft += (ACE_VALUE - 1 - value) >>> 31;
+      while (total > Player.BUST_NUM && soft > 0) {
+        total -= ACE_VALUE - ACE_AS_ONE;
+        soft -= 1;
+      }
+      size += 1;
+    }
+
+    playerTotals[t] = total;
+    playerSoft[t] = soft;
+    playerSizes[t] = size;
+  }
+
+  /**
+   * Helper method that hits a table's dealer below 17, or on a soft 17 if
+   * the dealer hits it.
+   * @param t Index of the table
+   * @return None.
+   */
+  private void playDealer(int t) {
+    int total = dealerTotals[t];
+    int soft = dealerSoft[t];
+    int size = dealerSizes[t];
+
+    while (total < Board.DEALER_MINIMUM
+        || (total < dealerSoftStand && soft > 0)) {
+      int value = deal(t);
+      total += value;
+      soft += (ACE_VALUE - 1 - value) >>> 31;
+      while (total > Player.BUST_NUM && soft > 0) {
+        total -= ACE_VALUE - ACE_AS_ONE;
+        soft -= 1;
+      }
+      size += 1;
+    }
+
+    dealerTotals[t] = total;
+    dealerSoft[t] = soft;
+    dealerSizes[t] = size;
+  }
+
+  /**
+   * Helper method that deals a card from a table's shoe the way Shoe does,
+   * refilling it first if it ran out in the middle of a round.
+   * @param t Index of the table
+   * @return Value of the card, 11 for an ace
+   */
+  private int deal(int t) {
+    if (cardsLeft[t] == 0)
+      refill(t);
+
+    int start = t * NUM_OF_NUMBERS;
+    int number = numbersLeft[start + CardRandom.nextInt(seeds, gammas, t
+        , numNumbersLeft[t])];
+    if (--counts[start + number - 1] == 0) {
+      // take the number off, keeping the others in order
+      int i = start;
+      while (numbersLeft[i] != number) {
+        i += 1;
+      }
+      numNumbersLeft[t] -= 1;
+      System.arraycopy(numbersLeft, i + 1, numbersLeft, i
+          , start + numNumbersLeft[t] - i);
+    }
+
+    cardsLeft[t] -= 1;
+    return VALUES[number];
+  }
+
+  /**
+   * Helper method that puts every card back into a table's shoe.
+   * @param t Index of the table
+   * @return None.
+   */
+  private void refill(int t) {
+    int start = t * NUM_OF_NUMBERS;
+    for (int n = 0; n < NUM_OF_NUMBERS; n++) {
+      counts[start + n] = shoeSize / NUM_OF_NUMBERS;
+      numbersLeft[start + n] = (byte) (n + 1);
+    }
+
+    numNumbersLeft[t] = NUM_OF_NUMBERS;
+    cardsLeft[t] = shoeSize;
+  }
+
+  /**
+   * Decides the outcome of a player the way Board.resolveRound does.
+   * @param playerSum Total of the player
+   * @param playerTwoCards Whether the player has only two cards
+   * @param dealerSum Total of the dealer
+   * @param dealerTwoCards Whether the dealer has only two cards
+   * @return One of RoundResult's outcomes
+   */
+  static int outcomeOf(int playerSum, boolean playerTwoCards
+      , int dealerSum, boolean dealerTwoCards) {
+    boolean dealerBlackjack = dealerTwoCards && dealerSum == Player.BUST_NUM;
+
+    if (playerTwoCards && playerSum == Player.BUST_NUM)
+      return dealerBlackjack ? RoundResult.TIES : RoundResult.BLACKJACK;
+    else if (dealerBlackjack && playerSum == Player.BUST_NUM)
+      return RoundResult.LOSES;
+    else if (playerSum > Player.BUST_NUM)
+      return RoundResult.LOSES_BUST;
+    else if (dealerSum > Player.BUST_NUM)
+      return RoundResult.WINS_BUST;
+    else if (playerSum > dealerSum)
+      return RoundResult.WINS;
+    else if (playerSum == dealerSum)
+      return RoundResult.TIES;
+    else
+      return RoundResult.LOSES;
+  }
+
+  /**
+   * Helper method that builds the outcome of every pair of totals, with and
+   * without only two cards.
+   * @return The outcomes
+   */
+  private static byte[] buildOutcomes() {
+    byte[] outcomes = new byte[4 * NUM_OF_SUMS * NUM_OF_SUMS];
+
+    for (int naturals = 0; naturals < 4; naturals++) {
+      for (int player = 0; player < NUM_OF_SUMS; player++) {
+        for (int dealer = 0; dealer < NUM_OF_SUMS; dealer++) {
+          outcomes[(naturals * NUM_OF_SUMS + player) * NUM_OF_SUMS + dealer] =
+              (byte) outcomeOf(player, (naturals & 2) != 0, dealer
+              , (naturals & 1) != 0);
+        }
+      }
+    }
+
+    return outcomes;
+  }
+
+  /**
+   * Asks a policy what it does on every total that can be reached, against
+   * every face up card of the dealer.
+   * @param policy The policy
+   * @return 1 where the policy hits, at index (soft * NUM_OF_TOTALS + total)
+   *         * NUM_OF_UP_VALUES + up value - 1
+   */
+  static byte[] decisionsOf(Policy policy) {
+    byte[] decisions = new byte[2 * NUM_OF_TOTALS * NUM_OF_UP_VALUES];
+    Player player = new Player();
+
+    for (int soft = 0; soft < 2; soft++) {
+      int minTotal = soft == 1 ? MIN_SOFT_TOTAL : MIN_HARD_TOTAL;
+
+      for (int total = minTotal; total < NUM_OF_TOTALS; total++) {
+        // reach the total with an ace and one card, or with cards of 2-10
+        player.reset();
+        if (soft == 1) {
+          player.hit(1);
+          player.hit(total - ACE_VALUE);
+        } else {
+          int left = total;
+          while (left > 13) {
+            player.hit(10);
+            left -= 10;
+          }
+          player.hit(left == 13 ? 3 : 2);
+          player.hit(left == 13 ? 10 : left - 2);
+        }
+
+        for (int up = 1; up <= NUM_OF_UP_VALUES; up++) {
+          boolean hit = policy.shouldHit(player, up);
+          decisions[(soft * NUM_OF_TOTALS + total) * NUM_OF_UP_VALUES
+              + up - 1] = (byte) (hit ? 1 : 0);
+        }
+      }
+    }
+
+    return decisions;
+  }
+}
@@ -0,0 +1,150 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * TableServer hosts many games of Blackjack at once over local sockets. Every
+ * connection gets its own table, a Board with one seat, played on its own
+ * thread, so a slow or idle player never holds up another table.
+ *
+ * The protocol is the same text the console game prints. Whenever the server
+ * waits for the player, it sends the line asking to `hit`, `stay` or receive
+ * a `hint`, and the player answers with one of those words on a line, or
+ * `quit` to leave the table. Rounds follow each other until the player quits.
+ *
+ * Every table keeps only small buffers of its own. The hints of all tables
+ * share one dealer odds calculator and advisor, whose caches would otherwise
+ * take far more memory than a table's buffers.
+ *
+ * @author Aimee Shao
+ */
+public class TableServer {
+
+  // Word to leave the table
+  static final String QUIT_STR = "quit";
+
+  // Number of connections waiting to be accepted
+  private static final int BACKLOG = 4096;
+
+  // Buffer sizes of each table, kept small so many tables fit in memory
+  private static final int OUTPUT_BUFFER_SIZE = 1024;
+  private static final int INPUT_BUFFER_SIZE = 64;
+
+  // Strings printed by the server
+  private static final String LISTENING_STR = "Hosting tables on port %d.\n";
+
+  private int port; // port to listen on
+  private Rules rules; // rules of every table
+  private CardRandom master; // generators of the tables are split from
+  private DealerOdds dealerOdds; // dealer's odds for the hints of every table
+  private Advisor advisor; // advice for the hints of every table
+
+  /**
+   * Constructor for the server.
+   * @param port Port to listen on
+   * @param rules Rules of every table
+   * @param seed Seed that the tables' random generators are split from
+   */
+  TableServer(int port, Rules rules, long seed) {
+    this.port = port;
+    this.rules = rules;
+    master = new CardRandom(seed);
+    dealerOdds = new DealerOdds(Board.DEALER_ODDS_CACHE_SIZE
+        , rules.hitsSoft17());
+    advisor = new Advisor(dealerOdds, Board.ADVISOR_CACHE_SIZE);
+  }
+
+  /**
+   * Accepts connections until the server is stopped, opening a table for
+   * each one.
+   * @return None.
+   * @throws IOException If the server cannot listen on the port
+   */
+  public void run() throws IOException {
+    ExecutorService tables = Threads.newPerTaskExecutor("table");
+
+    try (ServerSocket server = new ServerSocket(port, BACKLOG
+        , InetAddress.getLoopbackAddress())) {
+      System.out.printf(LISTENING_STR, server.getLocalPort());
+
+      while (true) {
+        Socket socket = server.accept();
+        CardRandom rand = master.split();
+        tables.execute(() -> play(socket, rand));
+      }
+    } finally {
+      tables.shutdownNow();
+    }
+  }
+
+  /**
+   * Plays rounds at one table until the player quits or disconnects.
+   * @param socket Connection to the player
+   * @param rand Random generator of the table
+   * @return None.
+   */
+  private void play(Socket socket, CardRandom rand) {
+    try (Socket player = socket) {
+      player.setTcpNoDelay(true);
+      BufferedReader in = new BufferedReader(new InputStreamReader(
+          player.getInputStream(), StandardCharsets.UTF_8), INPUT_BUFFER_SIZE);
+      Output out = new BufferedOutput(player.getOutputStream()
+          , OUTPUT_BUFFER_SIZE);
+      Board board = new Board(1, rules, out, rand);
+      board.setAdvice(dealerOdds, advisor);
+      board.setBankrolls(Player.UNLIMITED_BANKROLL); // played without money
+
+      while (true) {
+        board.setup();
+        board.printBoard();
+
+        // play every hand of the seat, more than one after splitting
+        do {
+          board.printActiveHand();
+          board.printActiveTotal();
+
+          // prompt until "stay" or the hand is over
+          boolean turnOver = false;
+          while (!turnOver) {
+            board.printActiveActions();
+            out.println(Blackjack.HIT_STAY_STR);
+            out.flush();
+
+            String input = in.readLine();
+            if (input == null || input.equalsIgnoreCase(QUIT_STR))
+              return;
+
+            int action = Blackjack.parseAction(input);
+            if (action >= 0 && board.isAllowed(action)) {
+              turnOver = board.play(action);
+              if (action != Policy.STAY) {
+                board.printActiveHand();
+                board.printActiveTotal();
+              }
+            } else if (input.equalsIgnoreCase(Blackjack.HINT_STR)) {
+              board.printActiveHint();
+            } else if (input.equalsIgnoreCase(Blackjack.INSURANCE_STR)
+                && board.canInsure()) {
+              board.insure();
+            } else if (action >= 0
+                || input.equalsIgnoreCase(Blackjack.INSURANCE_STR)) {
+              out.printf(Blackjack.NOT_ALLOWED_STR, input);
+            } else {
+              out.printf(Blackjack.INPUT_INVALID_STR, input);
+            }
+          }
+        } while (board.nextPlayer() == 1);
+
+        // dealer plays and the results are sent with the next prompt
+        board.resolveRound();
+      }
+    } catch (IOException e) {
+      // player went away; nothing else to clean up at this table
+    }
+  }
+}
@@ -0,0 +1,37 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Threads creates executors that run every task on its own thread. On JVMs
+ * with virtual threads (Java 21 and later) each task gets a virtual thread;
+ * otherwise each task gets a platform thread with a small stack, so that many
+ * thousands of mostly waiting tasks still fit in memory.
+ *
+ * @author Aimee Shao
+ */
+public class Threads {
+
+  // Stack size of platform threads; tables only need a shallow stack
+  private static final long STACK_SIZE = 256 * 1024;
+
+  /**
+   * Creates an executor that starts a new thread for every task.
+   * @param name Name of the threads
+   * @return The executor
+   */
+  public static ExecutorService newPerTaskExecutor(String name) {
+    try {
+      // look the method up so the code still compiles and runs on Java 17
+      Method virtual = Executors.class.getMethod(
+          "newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) virtual.invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      return Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(null, task, name, STACK_SIZE);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
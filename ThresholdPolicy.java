@@ -0,0 +1,28 @@
+/**
+ * A simple policy that keeps hitting until the player's total reaches a
+ * threshold. With a threshold of 17 the player mimics the dealer.
+ *
+ * @author Aimee Shao
+ */
+public class ThresholdPolicy implements Policy {
+
+  private int stayAt; // player stays once total is at least this
+
+  /**
+   * Constructor for the policy.
+   * @param stayAt Total at which the player stays
+   */
+  ThresholdPolicy(int stayAt) {
+    this.stayAt = stayAt;
+  }
+
+  /**
+   * Hits while the player's total is below the threshold.
+   * @param player The player whose turn it is
+   * @param dealerUpCard Number of the dealer's face up card
+   * @return true to hit, false to stay
+   */
+  public boolean shouldHit(Player player, int dealerUpCard) {
+    return player.getTotal() < stayAt;
+  }
+}
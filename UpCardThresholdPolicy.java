@@ -0,0 +1,109 @@
+/**
+ * A policy that keeps hitting until the player's total reaches a threshold,
+ * like ThresholdPolicy, but with its own threshold for every value of the
+ * dealer's face up card and for hard and soft totals. Its twenty thresholds
+ * are the parameters the PolicyOptimizer searches.
+ *
+ * @author Aimee Shao
+ */
+public class UpCardThresholdPolicy implements Policy {
+
+  // Range of the thresholds; below 12 hitting can never bust
+  static final int MIN_STAY_AT = 12;
+  static final int MAX_STAY_AT = Player.BUST_NUM;
+
+  // Number of thresholds: hard and soft for each face up value 1-10
+  static final int NUM_OF_UP_VALUES = CompositionKey.NUM_OF_VALUES;
+  static final int NUM_OF_PARAMS = 2 * NUM_OF_UP_VALUES;
+
+  // Strings of the thresholds
+  private static final String HEADER_STR = "Stay at   A  2  3  4  5  6  7  8  9"
+      + " 10\n";
+  private static final String ROW_STR = "%-8s";
+  private static final String HARD_STR = "hard";
+  private static final String SOFT_STR = "soft";
+  private static final String STAY_AT_STR = " %2d";
+  private static final String NEW_LINE_STR = "\n";
+
+  private int[] stayAt; // threshold by softness and face up value 1-10
+
+  /**
+   * Constructor for the policy that stays at the same total against every
+   * face up card.
+   * @param stayAt Total at which the player stays
+   */
+  UpCardThresholdPolicy(int stayAt) {
+    this.stayAt = new int[NUM_OF_PARAMS];
+    for (int i = 0; i < NUM_OF_PARAMS; i++) {
+      this.stayAt[i] = stayAt;
+    }
+  }
+
+  /**
+   * Constructor for the policy with the given thresholds.
+   * @param stayAt Threshold of hard totals against face up values 1-10, then
+   *               of soft totals; the array is copied
+   */
+  UpCardThresholdPolicy(int[] stayAt) {
+    if (stayAt.length != NUM_OF_PARAMS)
+      throw new IllegalArgumentException("need " + NUM_OF_PARAMS
+          + " thresholds");
+
+    this.stayAt = stayAt.clone();
+  }
+
+  /**
+   * Hits while the player's total is below the threshold for the dealer's
+   * face up card and the softness of the total.
+   * @param player The player whose turn it is
+   * @param dealerUpCard Number of the dealer's face up card
+   * @return true to hit, false to stay
+   */
+  public boolean shouldHit(Player player, int dealerUpCard) {
+    int soft = player.getAceAsElevenCount() > 0 ? NUM_OF_UP_VALUES : 0;
+    return player.getTotal()
+        < stayAt[soft + CompositionKey.valueOf(dealerUpCard) - 1];
+  }
+
+  /**
+   * Returns a threshold.
+   * @param param Index of the threshold: face up value - 1, plus
+   *              NUM_OF_UP_VALUES for soft totals
+   * @return Total at which the player stays
+   */
+  public int getStayAt(int param) {
+    return stayAt[param];
+  }
+
+  /**
+   * Returns a copy of the policy with one threshold changed.
+   * @param param Index of the threshold
+   * @param newStayAt New total at which the player stays
+   * @return The changed policy
+   */
+  public UpCardThresholdPolicy with(int param, int newStayAt) {
+    UpCardThresholdPolicy changed = new UpCardThresholdPolicy(stayAt);
+    changed.stayAt[param] = newStayAt;
+    return changed;
+  }
+
+  /**
+   * Returns the thresholds as a table of hard and soft rows against every
+   * face up card.
+   * @return The table
+   */
+  public String toString() {
+    StringBuilder table = new StringBuilder(HEADER_STR);
+
+    for (int soft = 0; soft < 2; soft++) {
+      table.append(String.format(ROW_STR, soft == 1 ? SOFT_STR : HARD_STR));
+      for (int up = 0; up < NUM_OF_UP_VALUES; up++) {
+        table.append(String.format(STAY_AT_STR
+            , stayAt[soft * NUM_OF_UP_VALUES + up]));
+      }
+      table.append(NEW_LINE_STR);
+    }
+
+    return table.toString();
+  }
+}